@@ -0,0 +1,656 @@
+package scheduler;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The operations every calendar backend offers, and the event orders and
+ * lookup bounds they share. Each backend keeps its events in its own
+ * storage: EventCalendar in an array with sorted views, the others in
+ * stripes, primitive columns or off-heap records. Code that works with any
+ * backend takes an AbstractEventCalendar.
+ * Iterating over a calendar visits the events in the order they were added.
+ */
+public abstract class AbstractEventCalendar implements Iterable<Event> {
+    final static int NOT_FOUND = -1;
+    final static int EQUAL_IN_COMPARABLE = 0;
+    final static int INITIAL_ARRAY_CAPACITY = 4;
+    final static int GROWTH_FACTOR = 2;
+    final static int INITIAL_NUMBER_OF_EVENTS = 0;
+
+    /**
+     * Get number of events the calendar can hold before it has to grow
+     *
+     * @return number of events room is allocated for
+     */
+    public abstract int getCapacity();
+
+    /**
+     * Get number of events in calendar
+     *
+     * @return number of events
+     */
+    public abstract int getNumEvents();
+
+    /**
+     * Make sure the calendar can hold at least minCapacity events without
+     * growing
+     *
+     * @param minCapacity number of events the calendar must be able to hold
+     */
+    public abstract void ensureCapacity(int minCapacity);
+
+    /**
+     * Release the room allocated beyond the events in the calendar
+     */
+    public abstract void trimToSize();
+
+    /**
+     * Add a new event to calendar.
+     *
+     * @param event the event to add
+     * @return true if the event was added
+     */
+    public abstract boolean add(Event event);
+
+    /**
+     * Remove specific event from events in calendar.
+     *
+     * @param event the event to remove
+     * @return true if event existed and was removed from calendar. False if
+     * the event did not exist and could not be removed
+     */
+    public abstract boolean remove(Event event);
+
+    /**
+     * Add a new event to calendar unless it conflicts with an event
+     * already in the calendar.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if it conflicted
+     */
+    public boolean addIfAbsent(Event event) {
+        if (this.hasConflict(event)) {
+            return false;
+        }
+        return this.add(event);
+    }
+
+    /**
+     * Add a batch of events. An event is skipped if it conflicts with an
+     * event already in the calendar or with an earlier event of the same
+     * batch.
+     *
+     * @param eventsToAdd the events to add
+     * @return for each event, true if it was added and false if it
+     * conflicted
+     */
+    public abstract boolean[] addAll(Event[] eventsToAdd);
+
+    /**
+     * Remove a batch of events.
+     *
+     * @param eventsToRemove the events to remove
+     * @return for each event, true if it was removed and false if it was
+     * not in the calendar
+     */
+    public abstract boolean[] removeAll(Event[] eventsToRemove);
+
+    /**
+     * Remove every event matching a filter.
+     *
+     * @param filter returns true for the events to remove
+     * @return number of events removed
+     */
+    public abstract int removeIf(Predicate<Event> filter);
+
+    /**
+     * Checks if the calendar contains an event at the same date, time slot
+     * and location
+     *
+     * @param event the Event object to check for
+     * @return true if it is found, false if it does not exist in the calendar
+     */
+    public abstract boolean contains(Event event);
+
+    /**
+     * Method to check if the event exists by checking if the
+     * DATE/TIMESLOT/LOCATION already exists
+     *
+     * @param eventToCheck event that we are checking exists or not
+     * @return True if the event is already in the calendar, false otherwise
+     */
+    public boolean hasConflict(Event eventToCheck) {
+        return this.contains(eventToCheck);
+    }
+
+    /**
+     * Copy the events in the order they were added
+     *
+     * @return new array holding every event of the calendar
+     */
+    public abstract Event[] toArray();
+
+    /**
+     * Iterate over the events in the order they were added
+     *
+     * @return iterator over every event, not supporting remove
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return this.iterator(0);
+    }
+
+    /**
+     * Iterate over the events in the order they were added, starting at a
+     * position, so a page of events can be read without copying the rest.
+     *
+     * @param from number of events to skip
+     * @return iterator over the events from that position on, not
+     * supporting remove
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    public abstract Iterator<Event> iterator(int from);
+
+    /**
+     * Get a read-only set of the events ordered by date and timeslot, the
+     * order of printByDate
+     *
+     * @return every event ordered by DATE_COMPARATOR
+     */
+    public abstract NavigableSet<Event> eventsByDate();
+
+    /**
+     * Get a read-only set of the events ordered by campus and building, the
+     * order of printByCampus
+     *
+     * @return every event ordered by CAMPUS_COMPARATOR
+     */
+    public abstract NavigableSet<Event> eventsByCampus();
+
+    /**
+     * Get a read-only set of the events ordered by department, the order
+     * of printByDepartment
+     *
+     * @return every event ordered by DEPARTMENT_COMPARATOR
+     */
+    public abstract NavigableSet<Event> eventsByDepartment();
+
+    /**
+     * print the events in the order they were added
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    public abstract void print(StringBuilder output);
+
+    /**
+     * prints events ordered by date and timeslot
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    public abstract void printByDate(StringBuilder output);
+
+    /**
+     * prints events ordered by campus and building/room
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    public abstract void printByCampus(StringBuilder output);
+
+    /**
+     * prints events ordered by department
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    public abstract void printByDepartment(StringBuilder output);
+
+    /**
+     * Check if no event is booked at a location in a time slot
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @param location location to check
+     * @return true if the slot is free, false if an event is booked in it
+     */
+    public abstract boolean isFree(
+            Date date, Timeslot timeslot, Location location);
+
+    /**
+     * Find every location with no event booked in a time slot
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @return the free locations, in the order Location declares them
+     */
+    public abstract Location[] freeLocations(Date date, Timeslot timeslot);
+
+    /**
+     * Find the first time slot of a location, at or after a given slot,
+     * with no event booked in it
+     *
+     * @param location location to check
+     * @param date     date to start from
+     * @param timeslot time slot to start from on that date
+     * @return the first free slot
+     */
+    public abstract RoomSlot nextFreeSlot(
+            Location location, Date date, Timeslot timeslot);
+
+    /**
+     * Find the events matching a query
+     *
+     * @param query criteria the events must meet
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    public abstract Event[] query(EventQuery query);
+
+    /**
+     * Turn a slot found in an OccupancyIndex back into a RoomSlot
+     *
+     * @param slot     day and time slot as OccupancyIndex.nextFree gives it
+     * @param location location of the slot
+     * @return the slot
+     */
+    static RoomSlot roomSlotOf(long slot, Location location) {
+        int numTimeslots = OccupancyIndex.NUM_TIMESLOTS;
+        return new RoomSlot(
+                Date.ofEpochDay((int) Math.floorDiv(slot, numTimeslots)),
+                TIMESLOTS[Math.floorMod(slot, numTimeslots)],
+                location
+        );
+    }
+
+    /**
+     * Read-only SortedSet over a range of an already sorted array. TreeSet
+     * copies it in linear time, and its subSet, headSet and tailSet are
+     * ranges of the same array found by binary search.
+     */
+    static class SortedRun extends AbstractSet<Event>
+            implements SortedSet<Event> {
+        private final Event[] sorted; //events in comparator order
+        private final Comparator<? super Event> comparator; //order of sorted
+        private final int from; //index of the first event of the run
+        private final int to; //index after the last event of the run
+
+        /**
+         * Wrap an array already sorted by the comparator
+         *
+         * @param sorted     the sorted events, without duplicates
+         * @param comparator the order the events are sorted in
+         */
+        SortedRun(Event[] sorted, Comparator<? super Event> comparator) {
+            this(sorted, comparator, 0, sorted.length);
+        }
+
+        /**
+         * Wrap a range of an array already sorted by the comparator
+         *
+         * @param sorted     the sorted events, without duplicates
+         * @param comparator the order the events are sorted in
+         * @param from       index of the first event of the range
+         * @param to         index after the last event of the range
+         */
+        private SortedRun(
+                Event[] sorted, Comparator<? super Event> comparator,
+                int from, int to
+        ) {
+            this.sorted = sorted;
+            this.comparator = comparator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            return Arrays.asList(this.sorted)
+                         .subList(this.from, this.to)
+                         .iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.to - this.from;
+        }
+
+        @Override
+        public Comparator<? super Event> comparator() {
+            return this.comparator;
+        }
+
+        @Override
+        public Event first() {
+            if (this.from == this.to) {
+                throw new NoSuchElementException();
+            }
+            return this.sorted[this.from];
+        }
+
+        @Override
+        public Event last() {
+            if (this.from == this.to) {
+                throw new NoSuchElementException();
+            }
+            return this.sorted[this.to - 1];
+        }
+
+        @Override
+        public SortedSet<Event> subSet(Event fromElement, Event toElement) {
+            if (this.comparator.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException(
+                        "fromElement is after toElement");
+            }
+            return this.range(this.indexOf(fromElement),
+                              this.indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<Event> headSet(Event toElement) {
+            return this.range(this.from, this.indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<Event> tailSet(Event fromElement) {
+            return this.range(this.indexOf(fromElement), this.to);
+        }
+
+        /**
+         * Find where an event is or would be in the run
+         *
+         * @param bound the event to look up, need not be in the run
+         * @return index of the first event of the run not before bound
+         */
+        private int indexOf(Event bound) {
+            int low = this.from;
+            int high = this.to;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.comparator.compare(this.sorted[middle], bound) < 0) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Get a range of the run sharing its array
+         *
+         * @param start index of the first event of the range
+         * @param end   index after the last event of the range
+         * @return the range, empty if end is not after start
+         */
+        private SortedRun range(int start, int end) {
+            return new SortedRun(this.sorted, this.comparator, start,
+                                 Math.max(start, end)
+            );
+        }
+    }
+
+    /**
+     * Find the events matching a query in a calendar's views. The most
+     * selective index the query allows is read, only over the range of
+     * dates asked for: the posting list of the contact, or the ranges of
+     * the locations, departments or time slots in the views ordered by
+     * them, or else the date ordered view. The other criteria are checked
+     * on the events read, so a query costs about as much as the events
+     * that index holds in the range.
+     *
+     * @param query        criteria the events must meet
+     * @param byDate       events ordered by DATE_COMPARATOR
+     * @param byCampus     events ordered by CAMPUS_COMPARATOR
+     * @param byDepartment events ordered by DEPARTMENT_COMPARATOR
+     * @param byTimeslot   events of a time slot, ordered by date
+     * @param byEmail      events of a lower case contact email, ordered by
+     *                     date, null if there are none
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    static Event[] select(
+            EventQuery query, NavigableSet<Event> byDate,
+            NavigableSet<Event> byCampus, NavigableSet<Event> byDepartment,
+            Function<Timeslot, NavigableSet<Event>> byTimeslot,
+            Function<String, NavigableSet<Event>> byEmail
+    ) {
+        if (query.isEmpty()) {
+            return new Event[0];
+        }
+        Date from = query.getFrom();
+        Date to = query.getTo();
+        ArrayList<SortedSet<Event>> ranges = new ArrayList<>();
+
+        EnumSet<Location> locations = query.getLocations();
+        EnumSet<Department> departments = query.getDepartments();
+        EnumSet<Timeslot> timeslots = query.getTimeslots();
+        double locationShare =
+                (double) locations.size() / LOCATIONS.length;
+        double departmentShare =
+                (double) departments.size() / Department.values().length;
+        double timeslotShare =
+                (double) timeslots.size() / TIMESLOTS.length;
+
+        if (query.getEmail() != null) {
+            NavigableSet<Event> posting = byEmail.apply(query.getEmail());
+            if (posting != null) {
+                ranges.add(posting.subSet(
+                        AbstractEventCalendar.probe(from, FIRST_TIMESLOT,
+                                                    FIRST_BY_NAME, null), true,
+                        AbstractEventCalendar.probe(to, LAST_TIMESLOT,
+                                                    LAST_BY_NAME, null), true
+                ));
+            }
+        }
+        else if (locationShare < 1 && locationShare <= departmentShare &&
+                 locationShare <= timeslotShare) {
+            for (Location location : locations) {
+                ranges.add(byCampus.subSet(
+                        AbstractEventCalendar.probe(from, FIRST_TIMESLOT,
+                                                    location, null), true,
+                        AbstractEventCalendar.probe(to, LAST_TIMESLOT,
+                                                    location, null), true
+                ));
+            }
+        }
+        else if (departmentShare < 1 && departmentShare <= timeslotShare) {
+            for (Department department : departments) {
+                ranges.add(byDepartment.subSet(
+                        AbstractEventCalendar.probe(from, FIRST_TIMESLOT,
+                                                    FIRST_BY_NAME, department
+                        ), true,
+                        AbstractEventCalendar.probe(to, LAST_TIMESLOT,
+                                                    LAST_BY_NAME, department
+                        ), true
+                ));
+            }
+        }
+        else if (timeslotShare < 1) {
+            for (Timeslot timeslot : timeslots) {
+                ranges.add(byTimeslot.apply(timeslot).subSet(
+                        AbstractEventCalendar.probe(from, timeslot,
+                                                    FIRST_BY_NAME, null), true,
+                        AbstractEventCalendar.probe(to, timeslot,
+                                                    LAST_BY_NAME, null), true
+                ));
+            }
+        }
+        else {
+            ranges.add(byDate.subSet(
+                    AbstractEventCalendar.probe(from, FIRST_TIMESLOT,
+                                                FIRST_BY_NAME, null), true,
+                    AbstractEventCalendar.probe(to, LAST_TIMESLOT,
+                                                LAST_BY_NAME, null), true
+            ));
+        }
+
+        ArrayList<Event> matching = new ArrayList<>();
+        for (SortedSet<Event> range : ranges) {
+            for (Event event : range) {
+                if (query.matches(event)) {
+                    matching.add(event);
+                }
+            }
+        }
+        Event[] found = matching.toArray(new Event[0]);
+        if (ranges.size() > 1) {
+            Arrays.sort(found, DATE_COMPARATOR);
+        }
+        return found;
+    }
+
+    /**
+     * Get an event ordered by DATE_COMPARATOR before every event on a date
+     * and after every event on the days before, to look up where the date
+     * starts in a view ordered by date
+     *
+     * @param date the date
+     * @return bound of the first event on the date
+     */
+    static Event firstOn(Date date) {
+        return AbstractEventCalendar.probe(date, FIRST_TIMESLOT,
+                                                   FIRST_BY_NAME, null
+        );
+    }
+
+    /**
+     * Create an event only used as a bound of a range of a sorted view
+     *
+     * @param date       date of the bound
+     * @param timeslot   time slot of the bound
+     * @param location   location of the bound
+     * @param department department of the bound, null where the view is
+     *                   not ordered by department
+     * @return the bound
+     */
+    static Event probe(
+            Date date, Timeslot timeslot, Location location,
+            Department department
+    ) {
+        return new Event(date, timeslot, location,
+                         new Contact(department, ""), 0
+        );
+    }
+
+    /**
+     * Rank each enum constant by a comparator, equal constants sharing a
+     * rank, so comparing two constants only compares two ints.
+     *
+     * @param values     every constant of the enum, in ordinal order
+     * @param comparator order to rank the constants in
+     * @return rank of each constant, by ordinal
+     */
+    private static <E extends Enum<E>> int[] rankBy(
+            E[] values, Comparator<E> comparator
+    ) {
+        int[] ranks = new int[values.length];
+        for (E value : values) {
+            for (E other : values) {
+                if (comparator.compare(other, value) < 0) {
+                    ranks[value.ordinal()]++;
+                }
+            }
+        }
+        return ranks;
+    }
+
+    //rank of each location by name, by ordinal
+    static final int[] LOCATION_NAME_RANK =
+            AbstractEventCalendar.rankBy(Location.values(),
+                                         Comparator.comparing(Location::name)
+            );
+    //rank of each location by campus name then building name, by ordinal
+    static final int[] CAMPUS_RANK =
+            AbstractEventCalendar.rankBy(
+                    Location.values(),
+                    Comparator.comparing(Location::getCampusName)
+                              .thenComparing(Location::getBuildingName)
+            );
+    //rank of each department by name, by ordinal
+    static final int[] DEPARTMENT_RANK =
+            AbstractEventCalendar.rankBy(
+                    Department.values(),
+                    Comparator.comparing(Department::toString)
+            );
+
+    /**
+     * Orders events by date and timeslot. Events at the same date and time
+     * are ordered by location name so no two events in the calendar tie.
+     */
+    static final Comparator<Event> DATE_COMPARATOR = (first, second) -> {
+        int compared = first.compareTo(second);
+        if (compared != 0) {
+            return compared;
+        }
+        return Integer.compare(
+                LOCATION_NAME_RANK[first.getLocation().ordinal()],
+                LOCATION_NAME_RANK[second.getLocation().ordinal()]
+        );
+    };
+
+    /**
+     * Orders events by campus name and then building name. Events in the
+     * same building are ordered by date and timeslot.
+     */
+    static final Comparator<Event> CAMPUS_COMPARATOR = (first, second) -> {
+        int compared = Integer.compare(
+                CAMPUS_RANK[first.getLocation().ordinal()],
+                CAMPUS_RANK[second.getLocation().ordinal()]
+        );
+        if (compared != 0) {
+            return compared;
+        }
+        return DATE_COMPARATOR.compare(first, second);
+    };
+
+    /**
+     * Orders events by department name. Events of the same department are
+     * ordered by date and timeslot.
+     */
+    static final Comparator<Event> DEPARTMENT_COMPARATOR = (first, second) -> {
+        int compared = Integer.compare(
+                DEPARTMENT_RANK[first.getContact().getDepartment().ordinal()],
+                DEPARTMENT_RANK[second.getContact().getDepartment().ordinal()]
+        );
+        if (compared != 0) {
+            return compared;
+        }
+        return DATE_COMPARATOR.compare(first, second);
+    };
+
+    //constants by ordinal, so creating an event copies no values() array
+    static final Location[] LOCATIONS = Location.values();
+    static final Timeslot[] TIMESLOTS = Timeslot.values();
+    static final Department[] DEPARTMENTS = Department.values();
+    static final Timeslot FIRST_TIMESLOT = TIMESLOTS[0];
+    static final Timeslot LAST_TIMESLOT = TIMESLOTS[TIMESLOTS.length - 1];
+    //locations first and last by name, bounding every location on a date
+    static final Location FIRST_BY_NAME =
+            AbstractEventCalendar.byNameRank(0);
+    static final Location LAST_BY_NAME =
+            AbstractEventCalendar.byNameRank(LOCATIONS.length - 1);
+
+    /**
+     * Find the location of a rank by name
+     *
+     * @param rank the rank, from 0
+     * @return the location of that rank
+     */
+    private static Location byNameRank(int rank) {
+        for (Location location : LOCATIONS) {
+            if (LOCATION_NAME_RANK[location.ordinal()] == rank) {
+                return location;
+            }
+        }
+        throw new IllegalStateException("No location of rank " + rank);
+    }
+}
@@ -0,0 +1,106 @@
+package scheduler;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * The range of dates events can currently be booked for: from today up to,
+ * but not including, the first day of the month six months from now.
+ * Reads today from a Clock so callers can pin it, and only recomputes the
+ * range when the day changes, so each check is two integer comparisons.
+ */
+public class BookingWindow {
+    private static final int MONTHS_AHEAD = 6;
+
+    private final Clock clock;
+    private long nextRefreshMillis; //clock millis at which the day changes
+    private int firstAcceptedDate; //today as a packed yyyymmdd int
+    private int firstRejectedDate; //first packed date too far away
+
+    /**
+     * Create a window that reads today from the given clock
+     *
+     * @param clock clock giving the current instant and time zone
+     */
+    public BookingWindow(Clock clock) {
+        this.clock = clock;
+        this.nextRefreshMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Create a window that reads today from the system clock
+     *
+     * @return window following the system clock in the default time zone
+     */
+    public static BookingWindow systemDefault() {
+        return new BookingWindow(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Recompute the window if the clock has moved on to another day.
+     */
+    private void refresh() {
+        if (this.clock.millis() < this.nextRefreshMillis) {
+            return;
+        }
+        ZoneId zone = this.clock.getZone();
+        LocalDate today = LocalDate.now(this.clock);
+        LocalDate firstRejected =
+                today.withDayOfMonth(1).plusMonths(MONTHS_AHEAD);
+
+        this.firstAcceptedDate = Date.pack(today.getYear(),
+                                           today.getMonthValue(),
+                                           today.getDayOfMonth()
+        );
+        this.firstRejectedDate = Date.pack(firstRejected.getYear(),
+                                           firstRejected.getMonthValue(),
+                                           firstRejected.getDayOfMonth()
+        );
+        this.nextRefreshMillis =
+                today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Check if the date is today or later.
+     *
+     * @param date date to check
+     * @return true if the date is not before today, false otherwise
+     */
+    public synchronized boolean isFutureDate(Date date) {
+        this.refresh();
+        return date.toPackedInt() >= this.firstAcceptedDate;
+    }
+
+    /**
+     * Check if the date's month is six or more months after the current
+     * month.
+     *
+     * @param date date to check
+     * @return true if the date is too far away to be booked, false otherwise
+     */
+    public synchronized boolean isMoreThanSixMonthsAway(Date date) {
+        this.refresh();
+        return date.toPackedInt() >= this.firstRejectedDate;
+    }
+
+    /**
+     * Unit tests for the window boundaries
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        ZoneId zone = ZoneId.systemDefault();
+        BookingWindow window = new BookingWindow(Clock.fixed(
+                LocalDate.of(2023, 10, 15).atStartOfDay(zone).toInstant(),
+                zone
+        ));
+
+        assert !window.isFutureDate(new Date(2023, 10, 14));
+        assert window.isFutureDate(new Date(2023, 10, 15));
+        assert window.isFutureDate(new Date(2024, 1, 1));
+        assert !window.isMoreThanSixMonthsAway(new Date(2024, 3, 31));
+        assert window.isMoreThanSixMonthsAway(new Date(2024, 4, 1));
+        assert window.isMoreThanSixMonthsAway(new Date(2025, 1, 1));
+    }
+}
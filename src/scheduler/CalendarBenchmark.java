@@ -0,0 +1,301 @@
+package scheduler;
+
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Benchmarks of the EventCalendar and EventOrganizer hot paths at several
+ * calendar sizes. Every benchmark is warmed up, then measured for a fixed
+ * number of timed iterations, and reports the average time and bytes
+ * allocated per operation together with the garbage collections that ran
+ * while it was measured. Operations that do not depend on the size of the
+ * calendar are measured once.
+ * <p>
+ * Run it with the sizes to measure as arguments, for example
+ * {@code java -Xmx2g scheduler.CalendarBenchmark 10 1000}, or with no
+ * arguments to measure every size in SIZES.
+ */
+public class CalendarBenchmark {
+    static final int[] SIZES = {10, 1_000, 100_000, 1_000_000};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 200_000_000L;
+    //events, dates and durations to pick from in size independent runs
+    private static final int NUM_SAMPLES = 1_000;
+
+    //first day of the events the calendars are filled with
+    private static final Date FIRST_DAY = Date.of(2025, 1, 1);
+    //today for the organizer, so the commands below are in its window
+    private static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2024, 1, 1)
+                     .atStartOfDay(ZoneId.systemDefault())
+                     .toInstant(),
+            ZoneId.systemDefault()
+    );
+    private static final String ADD_COMMAND =
+            "A 3/1/2024 morning hll114 cs cs@rutgers.edu 60";
+    private static final String REMOVE_COMMAND = "R 3/1/2024 morning hll114";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean();
+
+    //results are stored here so the JIT cannot drop the measured code
+    private static volatile Object sink;
+
+    /**
+     * Not meant to be created, only holds static methods
+     */
+    private CalendarBenchmark() {
+    }
+
+    /**
+     * One call of the code being measured
+     */
+    interface Invocation {
+        /**
+         * Run the measured code
+         *
+         * @param call number of the call, to vary its input
+         * @return number of operations the call performed
+         */
+        int run(int call);
+    }
+
+    /**
+     * Create distinct events filling every time slot of every location,
+     * day after day from FIRST_DAY
+     *
+     * @param numEvents number of events to create
+     * @return the events, in date order
+     */
+    static Event[] events(int numEvents) {
+        Timeslot[] timeslots = Timeslot.values();
+        Location[] locations = Location.values();
+        Department[] departments = Department.values();
+        Contact[] contacts = new Contact[departments.length];
+        for (int i = 0; i < departments.length; i++) {
+            contacts[i] = new Contact(departments[i],
+                                      departments[i].name().toLowerCase() +
+                                      "@rutgers.edu"
+            );
+        }
+
+        int slotsPerDay = timeslots.length * locations.length;
+        Event[] events = new Event[numEvents];
+        for (int i = 0; i < numEvents; i++) {
+            events[i] = new Event(FIRST_DAY.plusDays(i / slotsPerDay),
+                                  timeslots[i % timeslots.length],
+                                  locations[i / timeslots.length %
+                                            locations.length],
+                                  contacts[i % contacts.length],
+                                  30 + i % 91
+            );
+        }
+        return events;
+    }
+
+    /**
+     * Spread call numbers over the events without walking them in order
+     *
+     * @param call      number of the call
+     * @param numEvents number of events
+     * @return index of an event
+     */
+    private static int pick(int call, int numEvents) {
+        return Math.floorMod(call * 0x9E3779B9, numEvents);
+    }
+
+    /**
+     * Count the garbage collections so far, of every collector
+     *
+     * @return number of collections and milliseconds spent in them
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    /**
+     * Warm up and measure a benchmark, then print one line of results
+     *
+     * @param name       name of the benchmark
+     * @param size       number of events in the calendar, "-" if the
+     *                   benchmark does not depend on it
+     * @param invocation the code to measure
+     * @param output     stream the results are printed to
+     */
+    private static void measure(
+            String name, String size, Invocation invocation,
+            PrintStream output
+    ) {
+        int call = 0;
+        long numOperations = 0;
+        long elapsedNanos = 0;
+        long allocatedBytes = 0;
+        long[] gcBefore = null;
+
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS;
+             i++) {
+            if (i == WARMUP_ITERATIONS) {
+                gcBefore = CalendarBenchmark.gcTotals();
+            }
+            long operations = 0;
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                operations += invocation.run(call++);
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ITERATION_NANOS);
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() -
+                             allocatedBefore;
+
+            if (i >= WARMUP_ITERATIONS) {
+                numOperations += operations;
+                elapsedNanos += elapsed;
+                allocatedBytes += allocated;
+            }
+        }
+        long[] gcAfter = CalendarBenchmark.gcTotals();
+
+        output.printf("%-36s %9s %14.1f %12.1f %8d %8d%n",
+                      name, size,
+                      (double) elapsedNanos / numOperations,
+                      (double) allocatedBytes / numOperations,
+                      gcAfter[0] - gcBefore[0],
+                      gcAfter[1] - gcBefore[1]
+        );
+    }
+
+    /**
+     * Measure the operations that do not depend on the calendar size
+     *
+     * @param output stream the results are printed to
+     */
+    static void measureSizeIndependent(PrintStream output) {
+        Event[] events = CalendarBenchmark.events(NUM_SAMPLES);
+        Timeslot[] timeslots = Timeslot.values();
+        String[] dates = new String[NUM_SAMPLES];
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            dates[i] = events[i * 18 % NUM_SAMPLES].getDate().toString();
+        }
+
+        CalendarBenchmark.measure("Event.toString", "-", call -> {
+            sink = events[call % NUM_SAMPLES].toString();
+            return 1;
+        }, output);
+        CalendarBenchmark.measure("Timeslot.timeAfterDuration", "-",
+                                  call -> {
+            sink = timeslots[call % timeslots.length]
+                    .timeAfterDuration(30 + call % 91);
+            return 1;
+        }, output);
+        CalendarBenchmark.measure("Date.parseDate", "-", call -> {
+            sink = Date.parseDate(dates[call % NUM_SAMPLES]);
+            return 1;
+        }, output);
+    }
+
+    /**
+     * Measure the operations on a calendar of a given size
+     *
+     * @param numEvents number of events in the calendar
+     * @param output    stream the results are printed to
+     */
+    static void measureSize(int numEvents, PrintStream output) {
+        Event[] events = CalendarBenchmark.events(numEvents);
+        String size = Integer.toString(numEvents);
+        EventCalendar calendar = new EventCalendar();
+        calendar.addAll(events);
+
+        // fill an empty calendar one event at a time
+        CalendarBenchmark.measure("EventCalendar.add", size, call -> {
+            EventCalendar empty = new EventCalendar();
+            for (Event event : events) {
+                empty.add(event);
+            }
+            sink = empty;
+            return numEvents;
+        }, output);
+        CalendarBenchmark.measure("EventCalendar.contains", size, call -> {
+            sink = calendar.contains(
+                    events[CalendarBenchmark.pick(call, numEvents)]);
+            return 1;
+        }, output);
+        // the event is added back so the calendar keeps its size
+        CalendarBenchmark.measure("EventCalendar.remove+add", size, call -> {
+            Event event = events[CalendarBenchmark.pick(call, numEvents)];
+            calendar.remove(event);
+            calendar.add(event);
+            return 1;
+        }, output);
+
+        StringBuilder printed = new StringBuilder();
+        CalendarBenchmark.measure("EventCalendar.printByDate", size, call -> {
+            printed.setLength(0);
+            calendar.printByDate(printed);
+            return 1;
+        }, output);
+        CalendarBenchmark.measure("EventCalendar.printByCampus", size,
+                                  call -> {
+            printed.setLength(0);
+            calendar.printByCampus(printed);
+            return 1;
+        }, output);
+        CalendarBenchmark.measure("EventCalendar.printByDepartment", size,
+                                  call -> {
+            printed.setLength(0);
+            calendar.printByDepartment(printed);
+            return 1;
+        }, output);
+        printed.setLength(0);
+        printed.trimToSize();
+
+        // alternately book and cancel one slot outside the filled days
+        EventOrganizer organizer =
+                new EventOrganizer(calendar, Writer.nullWriter(), CLOCK);
+        CalendarBenchmark.measure("EventOrganizer.processCommand", size,
+                                  call -> {
+            organizer.processCommand(
+                    call % 2 == 0 ? ADD_COMMAND : REMOVE_COMMAND);
+            return 1;
+        }, output);
+    }
+
+    /**
+     * Run the benchmarks
+     *
+     * @param args sizes of the calendars to measure, every size in SIZES
+     *             if there are none
+     */
+    public static void main(String[] args) {
+        int[] sizes = CalendarBenchmark.SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        PrintStream output = System.out;
+        output.printf("%-36s %9s %14s %12s %8s %8s%n",
+                      "Benchmark", "Size", "ns/op", "B/op", "gc.count",
+                      "gc.ms"
+        );
+        CalendarBenchmark.measureSizeIndependent(output);
+        for (int size : sizes) {
+            CalendarBenchmark.measureSize(size, output);
+        }
+    }
+}
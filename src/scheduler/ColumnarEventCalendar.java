@@ -0,0 +1,441 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NavigableSet;
+
+/**
+ * A calendar that stores its events column by column instead of as
+ * Event objects. Each field of an event lives in its own primitive array
+ * and rows are found through an open addressing index over slot keys, so
+ * the calendar holds no per-event objects at all.
+ */
+public class ColumnarEventCalendar extends PackedEventCalendar {
+    private int[] dates; //packed date of each event
+    private byte[] timeslots; //timeslot ordinal of each event
+    private byte[] locations; //location ordinal of each event
+    private byte[] departments; //contact department ordinal of each event
+    private short[] durations; //duration of each event in minutes
+    private int[] emailIds; //id of each event's email
+    //slot key of each event -> index of the event in the columns
+    private final SlotIndex index = new SlotIndex();
+
+    /**
+     * Construct ColumnarEventCalendar with no events
+     */
+    public ColumnarEventCalendar() {
+        this(INITIAL_ARRAY_CAPACITY);
+    }
+
+    /**
+     * Construct ColumnarEventCalendar with no events but room for
+     * initialCapacity events before the columns have to grow.
+     *
+     * @param initialCapacity number of events to reserve space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public ColumnarEventCalendar(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid capacity: " + initialCapacity);
+        }
+        this.dates = new int[initialCapacity];
+        this.timeslots = new byte[initialCapacity];
+        this.locations = new byte[initialCapacity];
+        this.departments = new byte[initialCapacity];
+        this.durations = new short[initialCapacity];
+        this.emailIds = new int[initialCapacity];
+    }
+
+    /**
+     * Open addressing hash table from slot key to column index with linear
+     * probing, so looking up an event boxes nothing.
+     */
+    private static class SlotIndex {
+        private static final long EMPTY = -1;
+        private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+        private static final int INITIAL_TABLE_SIZE = 16;
+
+        private long[] keys = SlotIndex.emptyKeys(INITIAL_TABLE_SIZE);
+        private int[] values = new int[INITIAL_TABLE_SIZE];
+        private int size;
+
+        /**
+         * Create a key array with every slot empty
+         *
+         * @param tableSize number of slots, a power of two
+         * @return array of EMPTY keys
+         */
+        private static long[] emptyKeys(int tableSize) {
+            long[] keys = new long[tableSize];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        /**
+         * Get the slot a key would like to be stored in
+         *
+         * @param key the key
+         * @return preferred slot of the key
+         */
+        private int home(long key) {
+            int shift = Long.numberOfLeadingZeros(this.keys.length - 1);
+            return (int) ((key * HASH_MULTIPLIER) >>> shift);
+        }
+
+        /**
+         * Find the slot holding a key, or the empty slot it would go in
+         *
+         * @param key the key
+         * @return slot of the key, or the empty slot ending its probe
+         */
+        private int slotOf(long key) {
+            int mask = this.keys.length - 1;
+            int slot = this.home(key);
+            while (this.keys[slot] != EMPTY && this.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Get the value of a key
+         *
+         * @param key the key
+         * @return value of the key, NOT_FOUND if it is not in the table
+         */
+        int get(long key) {
+            int slot = this.slotOf(key);
+            return this.keys[slot] == EMPTY ? NOT_FOUND : this.values[slot];
+        }
+
+        /**
+         * Set the value of a key, adding the key if needed
+         *
+         * @param key   the key
+         * @param value its value
+         */
+        void put(long key, int value) {
+            int slot = this.slotOf(key);
+            if (this.keys[slot] == EMPTY) {
+                // keep the table at most half full
+                if ((this.size + 1) * 2 > this.keys.length) {
+                    this.rehash(this.keys.length * GROWTH_FACTOR);
+                    slot = this.slotOf(key);
+                }
+                this.keys[slot] = key;
+                this.size++;
+            }
+            this.values[slot] = value;
+        }
+
+        /**
+         * Remove a key, shifting back the keys probed past it so no probe
+         * sequence is broken
+         *
+         * @param key the key
+         */
+        void remove(long key) {
+            int mask = this.keys.length - 1;
+            int hole = this.slotOf(key);
+            if (this.keys[hole] == EMPTY) {
+                return;
+            }
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (this.keys[slot] == EMPTY) {
+                    break;
+                }
+                int home = this.home(this.keys[slot]);
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    this.keys[hole] = this.keys[slot];
+                    this.values[hole] = this.values[slot];
+                    hole = slot;
+                }
+            }
+            this.keys[hole] = EMPTY;
+            this.size--;
+        }
+
+        /**
+         * Make sure the table can take minSize keys without rehashing
+         *
+         * @param minSize number of keys the table must be able to hold
+         */
+        void ensureCapacity(int minSize) {
+            int tableSize = this.keys.length;
+            while (minSize * 2 > tableSize) {
+                tableSize *= GROWTH_FACTOR;
+            }
+            if (tableSize != this.keys.length) {
+                this.rehash(tableSize);
+            }
+        }
+
+        /**
+         * Move every key into a table of a new size
+         *
+         * @param tableSize number of slots of the new table, a power of two
+         */
+        private void rehash(int tableSize) {
+            long[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+            this.keys = SlotIndex.emptyKeys(tableSize);
+            this.values = new int[tableSize];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = this.slotOf(oldKeys[i]);
+                    this.keys[slot] = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get number of events the columns can hold before they have to grow
+     *
+     * @return length of the columns
+     */
+    @Override
+    public int getCapacity() {
+        return this.dates.length;
+    }
+
+    /**
+     * Make sure the columns can hold at least minCapacity events. Grows
+     * geometrically so repeated calls stay amortized linear.
+     *
+     * @param minCapacity number of events the calendar must be able to hold
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= this.dates.length) {
+            return;
+        }
+        int newCapacity = Math.max(
+                this.dates.length * GROWTH_FACTOR, INITIAL_ARRAY_CAPACITY);
+        if (newCapacity < minCapacity) {
+            newCapacity = minCapacity;
+        }
+        this.resize(newCapacity);
+        this.index.ensureCapacity(minCapacity);
+    }
+
+    /**
+     * Drop the removed rows and shrink the columns so their capacity is the
+     * number of events.
+     */
+    @Override
+    public void trimToSize() {
+        this.compact();
+        if (this.getNumRows() < this.dates.length) {
+            this.resize(this.getNumRows());
+        }
+    }
+
+    /**
+     * Copy the columns into new arrays of the given capacity.
+     *
+     * @param newCapacity length of the new columns, at least numRows
+     */
+    private void resize(int newCapacity) {
+        this.dates = Arrays.copyOf(this.dates, newCapacity);
+        this.timeslots = Arrays.copyOf(this.timeslots, newCapacity);
+        this.locations = Arrays.copyOf(this.locations, newCapacity);
+        this.departments = Arrays.copyOf(this.departments, newCapacity);
+        this.durations = Arrays.copyOf(this.durations, newCapacity);
+        this.emailIds = Arrays.copyOf(this.emailIds, newCapacity);
+    }
+
+    @Override
+    int dateAt(int row) {
+        return this.dates[row];
+    }
+
+    @Override
+    int timeslotAt(int row) {
+        return this.timeslots[row];
+    }
+
+    @Override
+    int locationAt(int row) {
+        return this.locations[row];
+    }
+
+    @Override
+    int departmentAt(int row) {
+        return this.departments[row];
+    }
+
+    @Override
+    int durationAt(int row) {
+        return this.durations[row];
+    }
+
+    @Override
+    int emailIdAt(int row) {
+        return this.emailIds[row];
+    }
+
+    @Override
+    void writeRow(int row, Event event, int emailId) {
+        this.dates[row] = event.getDate().toPackedInt();
+        this.timeslots[row] = (byte) event.getTimeslot().ordinal();
+        this.locations[row] = (byte) event.getLocation().ordinal();
+        this.departments[row] =
+                (byte) event.getContact().getDepartment().ordinal();
+        this.durations[row] = (short) event.getDuration();
+        this.emailIds[row] = emailId;
+    }
+
+    @Override
+    void markRemoved(int row) {
+        this.timeslots[row] = REMOVED;
+    }
+
+    @Override
+    void copyRow(int from, int to) {
+        this.dates[to] = this.dates[from];
+        this.timeslots[to] = this.timeslots[from];
+        this.locations[to] = this.locations[from];
+        this.departments[to] = this.departments[from];
+        this.durations[to] = this.durations[from];
+        this.emailIds[to] = this.emailIds[from];
+    }
+
+    @Override
+    int rowOf(long key) {
+        return this.index.get(key);
+    }
+
+    @Override
+    void indexRow(long key, int row) {
+        this.index.put(key, row);
+    }
+
+    @Override
+    void unindexRow(long key) {
+        this.index.remove(key);
+    }
+
+    /**
+     * Unit tests checking the columns behave like an EventCalendar
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        EventCalendar expected = new EventCalendar();
+        ColumnarEventCalendar columnar = new ColumnarEventCalendar(0);
+        Event[] events = new Event[500];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(
+                    Date.of(2024, 3, 1).plusDays(i * 7 % 60),
+                    Timeslot.values()[i % 3],
+                    Location.values()[i * 5 % 6],
+                    new Contact(Department.values()[i * 3 % 5],
+                                "c" + i % 11 + "@rutgers.edu"
+                    ),
+                    30 + i % 91
+            );
+            assert expected.addIfAbsent(events[i]) ==
+                   columnar.addIfAbsent(events[i]);
+        }
+        assert columnar.getNumEvents() == expected.getNumEvents();
+        assert columnar.getNumEvents() < events.length;
+        assert !columnar.add(events[0]);
+
+        // remove from the middle, by batch and by filter
+        assert columnar.remove(events[10]) && expected.remove(events[10]);
+        assert !columnar.remove(events[10]);
+        Event[] batch = {events[20], events[30], events[20], events[499]};
+        assert Arrays.equals(columnar.removeAll(batch),
+                             expected.removeAll(batch));
+        assert columnar.removeIf(event -> event.getDuration() == 40) ==
+               expected.removeIf(event -> event.getDuration() == 40);
+        assert columnar.contains(events[0]) && !columnar.contains(events[10]);
+        assert columnar.hasConflict(events[1]);
+
+        // every print matches EventCalendar's
+        StringBuilder want = new StringBuilder();
+        StringBuilder got = new StringBuilder();
+        expected.print(want);
+        expected.printByDate(want);
+        expected.printByCampus(want);
+        expected.printByDepartment(want);
+        columnar.print(got);
+        columnar.printByDate(got);
+        columnar.printByCampus(got);
+        columnar.printByDepartment(got);
+        assert got.toString().equals(want.toString());
+        assert Arrays.equals(columnar.toArray(), expected.toArray());
+
+        // the booked slots match EventCalendar's
+        for (Event event : events) {
+            assert columnar.isFree(event.getDate(), event.getTimeslot(),
+                                   event.getLocation()) ==
+                   expected.isFree(event.getDate(), event.getTimeslot(),
+                                   event.getLocation());
+        }
+        EventQuery query = new EventQuery().atCampus("Busch")
+                                           .in(Timeslot.MORNING);
+        assert Arrays.equals(columnar.query(query), expected.query(query));
+        Event firstEvent = expected.toArray()[0];
+        query = new EventQuery().contact(firstEvent.getContact().getEmail())
+                                .between(firstEvent.getDate(),
+                                         firstEvent.getDate());
+        assert Arrays.asList(columnar.query(query)).contains(firstEvent);
+        assert Arrays.equals(columnar.query(query), expected.query(query));
+        ArrayList<Event> iterated = new ArrayList<>();
+        columnar.iterator(5).forEachRemaining(iterated::add);
+        assert iterated.equals(Arrays.asList(expected.toArray())
+                                     .subList(5, expected.getNumEvents()));
+        assert columnar.spliterator().getExactSizeIfKnown() ==
+               expected.getNumEvents();
+        assert Arrays.equals(columnar.eventsByCampus().toArray(),
+                             expected.eventsByCampus().toArray());
+
+        // sorted views page and navigate like EventCalendar's
+        NavigableSet<Event> byDepartment = columnar.eventsByDepartment();
+        NavigableSet<Event> wantByDepartment = expected.eventsByDepartment();
+        Event middle = wantByDepartment.toArray(
+                new Event[0])[wantByDepartment.size() / 2];
+        assert byDepartment.size() == wantByDepartment.size();
+        assert byDepartment.first().equals(wantByDepartment.first());
+        assert byDepartment.last().equals(wantByDepartment.last());
+        assert Arrays.equals(byDepartment.tailSet(middle, false).toArray(),
+                             wantByDepartment.tailSet(middle, false)
+                                             .toArray());
+        assert Arrays.equals(byDepartment.headSet(middle).toArray(),
+                             wantByDepartment.headSet(middle).toArray());
+        assert byDepartment.higher(middle)
+                           .equals(wantByDepartment.higher(middle));
+        assert byDepartment.lower(middle)
+                           .equals(wantByDepartment.lower(middle));
+        assert byDepartment.contains(middle) &&
+               !byDepartment.tailSet(middle, false).contains(middle);
+        assert Arrays.equals(byDepartment.descendingSet().toArray(),
+                             wantByDepartment.descendingSet().toArray());
+
+        // a view follows later changes to the calendar
+        NavigableSet<Event> byDate = columnar.eventsByDate();
+        assert columnar.remove(middle) && expected.remove(middle);
+        assert !byDate.contains(middle);
+        assert Arrays.equals(byDate.toArray(),
+                             expected.eventsByDate().toArray());
+        assert columnar.add(middle) && expected.add(middle);
+        assert byDate.contains(middle);
+        assert byDate.size() == expected.getNumEvents();
+
+        // emails come back intact, removed rows are kept until trimmed
+        assert columnar.toArray()[0].toString()
+                                    .equals(expected.toArray()[0].toString());
+        assert columnar.getNumRows() > columnar.getNumEvents();
+        columnar.trimToSize();
+        assert columnar.getNumRows() == columnar.getNumEvents();
+        assert columnar.getCapacity() == columnar.getNumEvents();
+        assert columnar.addAll(new Event[]{events[10], events[10]})[0];
+        assert columnar.getNumEvents() == expected.getNumEvents() + 1;
+    }
+}
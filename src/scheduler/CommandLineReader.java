@@ -0,0 +1,155 @@
+package scheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads command lines from a channel through one large reusable buffer,
+ * decoding UTF-8 and splitting lines by hand instead of going through the
+ * regular expressions of a Scanner. Lines end at "\n", "\r\n" or "\r".
+ */
+public class CommandLineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel; //where the bytes come from
+    private final CharsetDecoder decoder; //turns bytes into chars
+    private final ByteBuffer bytes; //bytes read but not yet decoded
+    private final CharBuffer chars; //chars decoded but not yet returned
+    private final StringBuilder partialLine; //line split across two buffers
+    private boolean endOfInput; //channel has no more bytes
+    private boolean decoderFlushed; //last chars have been decoded
+    private boolean skipLineFeed; //last line ended with a lone '\r'
+
+    /**
+     * Create a reader over a channel of UTF-8 text with a buffer large
+     * enough for reading big command files
+     *
+     * @param channel the channel to read command lines from
+     */
+    public CommandLineReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a reader over a channel of UTF-8 text
+     *
+     * @param channel    the channel to read command lines from
+     * @param bufferSize number of bytes and chars buffered at a time
+     */
+    public CommandLineReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                                             .onMalformedInput(
+                                                     CodingErrorAction.REPLACE)
+                                             .onUnmappableCharacter(
+                                                     CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocateDirect(bufferSize);
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.chars.flip();
+        this.partialLine = new StringBuilder();
+    }
+
+    /**
+     * Open a reader over a command file
+     *
+     * @param commandFile path of the file to read
+     * @return reader positioned at the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static CommandLineReader open(Path commandFile) throws IOException {
+        return new CommandLineReader(
+                FileChannel.open(commandFile, StandardOpenOption.READ));
+    }
+
+    /**
+     * Read the next line without its line terminator
+     *
+     * @return the next line, or null once every line has been read
+     * @throws IOException if reading from the channel fails
+     */
+    public String readLine() throws IOException {
+        while (true) {
+            while (this.chars.hasRemaining()) {
+                char c = this.chars.get();
+                if (this.skipLineFeed) {
+                    this.skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    this.skipLineFeed = c == '\r';
+                    String line = this.partialLine.toString();
+                    this.partialLine.setLength(0);
+                    return line;
+                }
+                this.partialLine.append(c);
+            }
+
+            if (!this.fill()) {
+                if (this.partialLine.length() == 0) {
+                    return null;
+                }
+                String line = this.partialLine.toString();
+                this.partialLine.setLength(0);
+                return line;
+            }
+        }
+    }
+
+    /**
+     * Decode the next block of chars, reading from the channel if needed
+     *
+     * @return true if chars were decoded, false at the end of input
+     * @throws IOException if reading from the channel fails
+     */
+    private boolean fill() throws IOException {
+        this.chars.clear();
+        while (this.chars.position() == 0) {
+            if (this.endOfInput) {
+                if (!this.decoderFlushed) {
+                    this.bytes.flip();
+                    this.decoder.decode(this.bytes, this.chars, true);
+                    this.decoder.flush(this.chars);
+                    this.bytes.compact();
+                    this.decoderFlushed = true;
+                }
+                break;
+            }
+            if (this.channel.read(this.bytes) == -1) {
+                this.endOfInput = true;
+                continue;
+            }
+            this.bytes.flip();
+            CoderResult result = this.decoder.decode(this.bytes, this.chars,
+                                                     false
+            );
+            this.bytes.compact();
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+        this.chars.flip();
+        return this.chars.hasRemaining();
+    }
+
+    /**
+     * Close the underlying channel
+     *
+     * @throws IOException if closing the channel fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,244 @@
+package scheduler;
+
+/**
+ * Splits a command line into whitespace separated tokens in a single pass.
+ * Only the start and end index of each token are recorded, so tokens can
+ * be compared and parsed in place without regular expressions, token
+ * arrays or substrings. Tokens come out the same as from
+ * commandLine.split("\\s+").
+ */
+public final class CommandTokenizer {
+    private static final int INITIAL_TOKEN_CAPACITY = 8;
+
+    private String line; //the command line being tokenized
+    private int[] tokenStarts; //index of the first char of each token
+    private int[] tokenEnds; //index one past the last char of each token
+    private int numTokens; //number of tokens in the line
+
+    /**
+     * Create a tokenizer with no line
+     */
+    public CommandTokenizer() {
+        this.tokenStarts = new int[INITIAL_TOKEN_CAPACITY];
+        this.tokenEnds = new int[INITIAL_TOKEN_CAPACITY];
+        this.reset("");
+    }
+
+    /**
+     * Tokenize a new command line, replacing the previous one. Like
+     * String.split, a line starting with whitespace has an empty first
+     * token and a line of only whitespace has no tokens.
+     *
+     * @param commandLine the line to tokenize
+     * @return this tokenizer, for chaining
+     */
+    public CommandTokenizer reset(String commandLine) {
+        this.line = commandLine;
+        this.numTokens = 0;
+
+        int length = commandLine.length();
+        int position = 0;
+        if (length == 0) {
+            this.addToken(0, 0);
+            return this;
+        }
+
+        if (isWhitespace(commandLine.charAt(0))) {
+            while (position < length &&
+                   isWhitespace(commandLine.charAt(position))) {
+                position++;
+            }
+            if (position == length) {
+                return this;
+            }
+            this.addToken(0, 0);
+        }
+
+        while (position < length) {
+            int start = position;
+            while (position < length &&
+                   !isWhitespace(commandLine.charAt(position))) {
+                position++;
+            }
+            this.addToken(start, position);
+            while (position < length &&
+                   isWhitespace(commandLine.charAt(position))) {
+                position++;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Checks if a char is whitespace as matched by the regex \s
+     *
+     * @param c char to check
+     * @return true if c is a space, tab, newline, vertical tab, form feed
+     * or carriage return
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' ||
+               c == '\f' || c == '\r';
+    }
+
+    /**
+     * Record the bounds of the next token, growing the bound arrays when
+     * they are full
+     *
+     * @param start index of the first char of the token
+     * @param end   index one past the last char of the token
+     */
+    private void addToken(int start, int end) {
+        if (this.numTokens == this.tokenStarts.length) {
+            int newCapacity = this.tokenStarts.length * 2;
+            int[] newStarts = new int[newCapacity];
+            int[] newEnds = new int[newCapacity];
+            System.arraycopy(this.tokenStarts, 0, newStarts, 0, this.numTokens);
+            System.arraycopy(this.tokenEnds, 0, newEnds, 0, this.numTokens);
+            this.tokenStarts = newStarts;
+            this.tokenEnds = newEnds;
+        }
+        this.tokenStarts[this.numTokens] = start;
+        this.tokenEnds[this.numTokens] = end;
+        this.numTokens++;
+    }
+
+    /**
+     * Get number of tokens in the current line
+     *
+     * @return number of tokens
+     */
+    public int getNumTokens() {
+        return this.numTokens;
+    }
+
+    /**
+     * Get the current command line
+     *
+     * @return the line being tokenized
+     */
+    public String getLine() {
+        return this.line;
+    }
+
+    /**
+     * Get index of the first char of a token in the line
+     *
+     * @param index which token, starting from 0
+     * @return start index of the token
+     */
+    public int tokenStart(int index) {
+        return this.tokenStarts[index];
+    }
+
+    /**
+     * Get index one past the last char of a token in the line
+     *
+     * @param index which token, starting from 0
+     * @return end index of the token
+     */
+    public int tokenEnd(int index) {
+        return this.tokenEnds[index];
+    }
+
+    /**
+     * Checks if a token is exactly the expected text
+     *
+     * @param index    which token, starting from 0
+     * @param expected the text to compare against
+     * @return true if the token has the same chars as expected
+     */
+    public boolean tokenEquals(int index, String expected) {
+        int start = this.tokenStarts[index];
+        return this.tokenEnds[index] - start == expected.length() &&
+               this.line.regionMatches(start, expected, 0, expected.length());
+    }
+
+    /**
+     * Get a token as its own string. Only use this when the token has to be
+     * kept, such as an email, or for error messages.
+     *
+     * @param index which token, starting from 0
+     * @return the token's text
+     */
+    public String token(int index) {
+        return this.line.substring(this.tokenStarts[index],
+                                   this.tokenEnds[index]
+        );
+    }
+
+    /**
+     * Parse a token as a base 10 int in place
+     *
+     * @param index which token, starting from 0
+     * @return the int value of the token
+     * @throws NumberFormatException if the token is not a valid int
+     */
+    public int parseInt(int index) {
+        int decimalRadix = 10;
+        return Integer.parseInt(this.line,
+                                this.tokenStarts[index],
+                                this.tokenEnds[index],
+                                decimalRadix
+        );
+    }
+
+    /**
+     * Parse a token in the format "month/day/year" in place
+     *
+     * @param index which token, starting from 0
+     * @return a Date object representing the parsed date
+     * @throws IllegalArgumentException if the token is not in a valid format
+     */
+    public Date parseDate(int index) {
+        return Date.parseDate(this.line,
+                              this.tokenStarts[index],
+                              this.tokenEnds[index]
+        );
+    }
+
+    /**
+     * Find the enum constant whose name matches a token, ignoring case
+     *
+     * @param index  which token, starting from 0
+     * @param lookup lookup table of the enum's constants
+     * @param <E>    type of the enum
+     * @return the matching constant or null if no constant matches
+     */
+    public <E extends Enum<E>> E parseEnum(int index, EnumLookup<E> lookup) {
+        return lookup.find(this.line,
+                           this.tokenStarts[index],
+                           this.tokenEnds[index]
+        );
+    }
+
+    /**
+     * Unit tests for tokenizing lines the way String.split("\\s+") does
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        CommandTokenizer tokenizer = new CommandTokenizer();
+        String[] lines = {"", " ", "   ", "P", "  P", "P  ", "A\tb  c ",
+                          "A 10/21/2023 afternoon hll114 cs cs@rutgers.edu 60",
+                          " a b c d e f g h i j k "};
+        for (String line : lines) {
+            String[] expected = line.split("\\s+");
+            tokenizer.reset(line);
+            assert tokenizer.getNumTokens() == expected.length;
+            for (int i = 0; i < expected.length; i++) {
+                assert tokenizer.token(i).equals(expected[i]);
+                assert tokenizer.tokenEquals(i, expected[i]);
+            }
+        }
+
+        tokenizer.reset("R 2/29/2024 MorNing hll114 -12");
+        assert tokenizer.tokenEquals(0, "R");
+        assert !tokenizer.tokenEquals(0, "RR");
+        assert tokenizer.parseDate(1).equals(new Date(2024, 2, 29));
+        assert tokenizer.parseEnum(2, Timeslot.LOOKUP) == Timeslot.MORNING;
+        assert tokenizer.parseEnum(3, Location.LOOKUP) == Location.HLL114;
+        assert tokenizer.parseEnum(3, Department.LOOKUP) == null;
+        assert tokenizer.parseInt(4) == -12;
+    }
+}
@@ -0,0 +1,741 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A calendar that can be shared by several threads, for example
+ * several front-ends booking into the same calendar.
+ * <p>
+ * Events are split into one stripe per Location, each with its own lock.
+ * Two events can only conflict if they share a location, so the conflict
+ * check and insert of addIfAbsent only need that location's lock and
+ * bookings for different rooms never wait on each other. Each stripe keeps
+ * its events in insertion order in a concurrent skip list, and the sorted
+ * views are concurrent skip lists too, so reading events never locks and a
+ * page of events is read by walking the lists instead of copying the
+ * calendar. Readers see changes made while they read or not, like the
+ * iterators of java.util.concurrent. Each stripe also keeps the
+ * OccupancyIndex bitmap of its location for the free slot queries, read
+ * optimistically and only under the stripe's read lock if a writer got in
+ * the way.
+ */
+public class ConcurrentEventCalendar extends AbstractEventCalendar {
+    private final Stripe[] stripes; //one stripe per Location, by ordinal
+    //insertion number of every event, for lock free contains and remove
+    private final ConcurrentHashMap<Event, Long> index;
+    //insertion number of the next event, orders events across stripes
+    private final AtomicLong nextSequence;
+    //events ordered for printByDate
+    private final ConcurrentSkipListSet<Event> byDate;
+    //events ordered for printByCampus
+    private final ConcurrentSkipListSet<Event> byCampus;
+    //events ordered for printByDepartment
+    private final ConcurrentSkipListSet<Event> byDepartment;
+    //events of each time slot, ordered by date
+    private final EnumMap<Timeslot, ConcurrentSkipListSet<Event>> byTimeslot;
+    //events of each contact email in lower case, ordered by date
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Event>>
+            byEmail;
+
+    /**
+     * Construct ConcurrentEventCalendar with no events
+     */
+    public ConcurrentEventCalendar() {
+        this.stripes = new Stripe[Location.values().length];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(Location.values()[i]);
+        }
+        this.index = new ConcurrentHashMap<>();
+        this.nextSequence = new AtomicLong();
+        this.byDate = new ConcurrentSkipListSet<>(DATE_COMPARATOR);
+        this.byCampus = new ConcurrentSkipListSet<>(CAMPUS_COMPARATOR);
+        this.byDepartment = new ConcurrentSkipListSet<>(DEPARTMENT_COMPARATOR);
+        this.byTimeslot = new EnumMap<>(Timeslot.class);
+        for (Timeslot timeslot : Timeslot.values()) {
+            this.byTimeslot.put(timeslot,
+                                new ConcurrentSkipListSet<>(DATE_COMPARATOR));
+        }
+        this.byEmail = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The events of one location keyed by insertion number, and the
+     * bitmap of their slots. Writers hold the write lock, readers walk the
+     * skip list without locking and read the bitmap optimistically.
+     */
+    private static class Stripe {
+        private final StampedLock lock = new StampedLock();
+        //events of the location by insertion number
+        private final ConcurrentSkipListMap<Long, Event> bySequence =
+                new ConcurrentSkipListMap<>();
+        private final OccupancyIndex occupancy; //booked slots of the location
+
+        /**
+         * Create an empty stripe
+         *
+         * @param location location of the stripe's events
+         */
+        private Stripe(Location location) {
+            this.occupancy = OccupancyIndex.of(location);
+        }
+
+        /**
+         * Read the bitmap. Tries an optimistic read first and reads again
+         * under the read lock if a writer changed the stripe meanwhile.
+         *
+         * @param reader reads a value from the bitmap
+         * @return the value read
+         */
+        private long read(ToLongFunction<OccupancyIndex> reader) {
+            long stamp = this.lock.tryOptimisticRead();
+            if (stamp != 0) {
+                long value = reader.applyAsLong(this.occupancy);
+                if (this.lock.validate(stamp)) {
+                    return value;
+                }
+            }
+
+            stamp = this.lock.readLock();
+            try {
+                return reader.applyAsLong(this.occupancy);
+            }
+            finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Iterator over the events of every stripe in the order they were
+     * added, merging the stripes by insertion number as it goes instead
+     * of copying them first
+     */
+    private static class InsertionOrder implements Iterator<Event> {
+        //iterator over each stripe's events by insertion number
+        private final ArrayList<Iterator<Map.Entry<Long, Event>>> stripes;
+        //next event of each stripe, null once the stripe is done
+        private final ArrayList<Map.Entry<Long, Event>> heads;
+
+        /**
+         * Start merging the stripes from their first events
+         *
+         * @param stripes the stripes to merge
+         */
+        private InsertionOrder(Stripe[] stripes) {
+            this.stripes = new ArrayList<>(stripes.length);
+            this.heads = new ArrayList<>(stripes.length);
+            for (Stripe stripe : stripes) {
+                Iterator<Map.Entry<Long, Event>> entries =
+                        stripe.bySequence.entrySet().iterator();
+                this.stripes.add(entries);
+                this.heads.add(entries.hasNext() ? entries.next() : null);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Map.Entry<Long, Event> head : this.heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Event next() {
+            int next = NOT_FOUND;
+            for (int i = 0; i < this.heads.size(); i++) {
+                Map.Entry<Long, Event> head = this.heads.get(i);
+                if (head != null &&
+                    (next == NOT_FOUND ||
+                     head.getKey() < this.heads.get(next).getKey())) {
+                    next = i;
+                }
+            }
+            if (next == NOT_FOUND) {
+                throw new NoSuchElementException();
+            }
+
+            Event event = this.heads.get(next).getValue();
+            Iterator<Map.Entry<Long, Event>> entries = this.stripes.get(next);
+            this.heads.set(next, entries.hasNext() ? entries.next() : null);
+            return event;
+        }
+    }
+
+    /**
+     * Get the stripe holding events at the event's location
+     *
+     * @param event the event whose stripe is wanted
+     * @return stripe of the event's location
+     */
+    private Stripe stripeOf(Event event) {
+        return this.stripes[event.getLocation().ordinal()];
+    }
+
+    /**
+     * Get number of events in calendar
+     *
+     * @return number of events
+     */
+    @Override
+    public int getNumEvents() {
+        return this.index.size();
+    }
+
+    /**
+     * Get number of events the calendar holds, since its skip lists grow
+     * one entry at a time and hold no spare room
+     *
+     * @return number of events
+     */
+    @Override
+    public int getCapacity() {
+        return this.getNumEvents();
+    }
+
+    /**
+     * Does nothing, the skip lists grow one entry at a time.
+     *
+     * @param minCapacity unused
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+    }
+
+    /**
+     * Does nothing, the skip lists hold no spare room.
+     */
+    @Override
+    public void trimToSize() {
+    }
+
+    /**
+     * Add a new event to calendar. Unlike EventCalendar.add this never
+     * adds an event that conflicts with one already in the calendar.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if it conflicted
+     */
+    @Override
+    public boolean add(Event event) {
+        return this.addIfAbsent(event);
+    }
+
+    /**
+     * Atomically check that no event conflicts with this one and add it.
+     * Only locks the stripe of the event's location.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if it conflicted
+     */
+    @Override
+    public boolean addIfAbsent(Event event) {
+        Stripe stripe = this.stripeOf(event);
+        long stamp = stripe.lock.writeLock();
+        try {
+            long sequence = this.nextSequence.getAndIncrement();
+            if (this.index.putIfAbsent(event, sequence) != null) {
+                return false;
+            }
+            stripe.bySequence.put(sequence, event);
+            stripe.occupancy.occupy(event);
+            this.byDate.add(event);
+            this.byCampus.add(event);
+            this.byDepartment.add(event);
+            this.byTimeslot.get(event.getTimeslot()).add(event);
+            // events of one email can be booked under different stripes
+            this.byEmail.compute(
+                    EventQuery.emailKey(event.getContact().getEmail()),
+                    (email, posting) -> {
+                        if (posting == null) {
+                            posting = new ConcurrentSkipListSet<>(
+                                    DATE_COMPARATOR);
+                        }
+                        posting.add(event);
+                        return posting;
+                    }
+            );
+            return true;
+        }
+        finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove specific event from events in calendar. Only locks the stripe
+     * of the event's location.
+     *
+     * @param event the event to remove
+     * @return true if event existed and was removed from calendar. False if
+     * the event did not exist and could not be removed
+     */
+    @Override
+    public boolean remove(Event event) {
+        Stripe stripe = this.stripeOf(event);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Long sequence = this.index.get(event);
+            if (sequence == null) {
+                return false;
+            }
+            this.removeFrom(stripe, sequence);
+            return true;
+        }
+        finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Take an event out of its stripe, its bitmap, the index, the sorted
+     * views and the posting lists.
+     * Caller must hold the stripe's write lock.
+     *
+     * @param stripe   stripe of the event's location
+     * @param sequence insertion number of the event
+     */
+    private void removeFrom(Stripe stripe, long sequence) {
+        // the stored event, whose department the department view sorts by
+        Event removed = stripe.bySequence.remove(sequence);
+        this.index.remove(removed);
+        this.byDate.remove(removed);
+        this.byCampus.remove(removed);
+        this.byDepartment.remove(removed);
+        this.byTimeslot.get(removed.getTimeslot()).remove(removed);
+        this.byEmail.computeIfPresent(
+                EventQuery.emailKey(removed.getContact().getEmail()),
+                (email, posting) -> posting.remove(removed) &&
+                                    posting.isEmpty() ? null : posting
+        );
+        stripe.occupancy.free(removed);
+    }
+
+    /**
+     * Add a batch of events one by one. Each event is checked and added
+     * atomically, but other threads may add events between them.
+     *
+     * @param eventsToAdd the events to add
+     * @return for each event, true if it was added and false if it
+     * conflicted
+     */
+    @Override
+    public boolean[] addAll(Event[] eventsToAdd) {
+        boolean[] added = new boolean[eventsToAdd.length];
+        for (int i = 0; i < eventsToAdd.length; i++) {
+            added[i] = this.addIfAbsent(eventsToAdd[i]);
+        }
+        return added;
+    }
+
+    /**
+     * Remove a batch of events one by one.
+     *
+     * @param eventsToRemove the events to remove
+     * @return for each event, true if it was removed and false if it was
+     * not in the calendar
+     */
+    @Override
+    public boolean[] removeAll(Event[] eventsToRemove) {
+        boolean[] removed = new boolean[eventsToRemove.length];
+        for (int i = 0; i < eventsToRemove.length; i++) {
+            removed[i] = this.remove(eventsToRemove[i]);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove every event matching a filter, one stripe at a time with a
+     * single sweep over each stripe.
+     *
+     * @param filter returns true for the events to remove
+     * @return number of events removed
+     */
+    @Override
+    public int removeIf(Predicate<Event> filter) {
+        int numRemoved = 0;
+        for (Stripe stripe : this.stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                for (Map.Entry<Long, Event> entry :
+                        stripe.bySequence.entrySet()) {
+                    if (filter.test(entry.getValue())) {
+                        this.removeFrom(stripe, entry.getKey());
+                        numRemoved++;
+                    }
+                }
+            }
+            finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+        return numRemoved;
+    }
+
+    /**
+     * Checks if the calendar contains a particular Event without locking
+     *
+     * @param event the Event object to check for
+     * @return true if it is found, false if it does not exist in the calendar
+     */
+    @Override
+    public boolean contains(Event event) {
+        return this.index.containsKey(event);
+    }
+
+    /**
+     * Check if no event is booked at a location in a time slot, testing
+     * one bit of the location's bitmap
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @param location location to check
+     * @return true if the slot is free, false if an event is booked in it
+     */
+    @Override
+    public boolean isFree(Date date, Timeslot timeslot, Location location) {
+        int epochDay = date.toEpochDay();
+        return this.stripes[location.ordinal()].read(
+                occupancy -> occupancy.isOccupied(epochDay,
+                                                  timeslot.ordinal(),
+                                                  location.ordinal()
+                ) ? 1 : 0
+        ) == 0;
+    }
+
+    /**
+     * Find every location with no event booked in a time slot
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @return the free locations, in the order Location declares them
+     */
+    @Override
+    public Location[] freeLocations(Date date, Timeslot timeslot) {
+        Location[] locations = Location.values();
+        int numFree = 0;
+        for (Location location : locations) {
+            if (this.isFree(date, timeslot, location)) {
+                locations[numFree++] = location;
+            }
+        }
+        return Arrays.copyOf(locations, numFree);
+    }
+
+    /**
+     * Find the first time slot of a location, at or after a given slot,
+     * with no event booked in it, scanning the location's bitmap a word
+     * at a time
+     *
+     * @param location location to check
+     * @param date     date to start from
+     * @param timeslot time slot to start from on that date
+     * @return the first free slot
+     */
+    @Override
+    public RoomSlot nextFreeSlot(
+            Location location, Date date, Timeslot timeslot
+    ) {
+        int epochDay = date.toEpochDay();
+        long slot = this.stripes[location.ordinal()].read(
+                occupancy -> occupancy.nextFree(epochDay, timeslot.ordinal(),
+                                                location.ordinal())
+        );
+        return AbstractEventCalendar.roomSlotOf(slot, location);
+    }
+
+    /**
+     * Copy the events in the order they were added, merging the stripes
+     * by insertion number
+     *
+     * @return new array holding every event of the calendar
+     */
+    @Override
+    public Event[] toArray() {
+        ArrayList<Event> events = new ArrayList<>(this.getNumEvents());
+        this.iterator(0).forEachRemaining(events::add);
+        return events.toArray(new Event[0]);
+    }
+
+    /**
+     * print the events in the order they were added
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void print(StringBuilder output) {
+        this.iterator(0).forEachRemaining(
+                event -> event.appendTo(output)
+                              .append(System.lineSeparator()));
+    }
+
+    /**
+     * Print the events of a sorted view in the view's order
+     *
+     * @param view   sorted view to print
+     * @param output buffer each event is appended to, one per line
+     */
+    private static void print(
+            NavigableSet<Event> view, StringBuilder output
+    ) {
+        for (Event event : view) {
+            event.appendTo(output).append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * prints events ordered by date and timeslot
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDate(StringBuilder output) {
+        ConcurrentEventCalendar.print(this.byDate, output);
+    }
+
+    /**
+     * prints events ordered by campus and building/room
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByCampus(StringBuilder output) {
+        ConcurrentEventCalendar.print(this.byCampus, output);
+    }
+
+    /**
+     * prints events ordered by department
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDepartment(StringBuilder output) {
+        ConcurrentEventCalendar.print(this.byDepartment, output);
+    }
+
+    /**
+     * Iterate over the events in the order they were added, starting at a
+     * position. The stripes are merged as the iterator goes, so reading a
+     * page only visits the events before it and on it.
+     *
+     * @param from number of events to skip
+     * @return iterator over the events from that position on, not
+     * supporting remove
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    @Override
+    public Iterator<Event> iterator(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("from: " + from);
+        }
+        Iterator<Event> events = new InsertionOrder(this.stripes);
+        for (int skipped = 0; skipped < from && events.hasNext(); skipped++) {
+            events.next();
+        }
+        return events;
+    }
+
+    /**
+     * Split the events in the order they were added, for streams. The
+     * size is not known up front since other threads may change the
+     * calendar while it is read.
+     *
+     * @return spliterator over every event
+     */
+    @Override
+    public Spliterator<Event> spliterator() {
+        return Spliterators.spliteratorUnknownSize(this.iterator(0),
+                                                   Spliterator.ORDERED |
+                                                   Spliterator.NONNULL
+        );
+    }
+
+    /**
+     * Get a read-only view of the events ordered by date and timeslot. Its
+     * tailSet and iterator walk the skip list and follow later changes.
+     *
+     * @return view of every event ordered by DATE_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDate() {
+        return Collections.unmodifiableNavigableSet(this.byDate);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by campus and building
+     *
+     * @return view of every event ordered by CAMPUS_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByCampus() {
+        return Collections.unmodifiableNavigableSet(this.byCampus);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by department
+     *
+     * @return view of every event ordered by DEPARTMENT_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDepartment() {
+        return Collections.unmodifiableNavigableSet(this.byDepartment);
+    }
+
+    /**
+     * Find the events matching a query, reading the most selective view
+     * the query allows over the range of dates asked for
+     *
+     * @param query criteria the events must meet
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    @Override
+    public Event[] query(EventQuery query) {
+        return AbstractEventCalendar.select(query, this.byDate, this.byCampus,
+                                            this.byDepartment,
+                                            this.byTimeslot::get,
+                                            this.byEmail::get
+        );
+    }
+
+    /**
+     * Unit tests for concurrent booking
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        ConcurrentEventCalendar calendar = new ConcurrentEventCalendar();
+        Location[] locations = Location.values();
+        Timeslot[] timeslots = Timeslot.values();
+        int numDays = 50;
+        int numThreads = 8;
+        int[] booked = new int[numThreads];
+
+        // every thread tries to book every slot, each slot must go once
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int day = 1; day <= numDays; day++) {
+                    for (Location location : locations) {
+                        for (Timeslot timeslot : timeslots) {
+                            Event event = new Event(
+                                    Date.of(2024, 1, 1).plusDays(day),
+                                    timeslot,
+                                    location,
+                                    new Contact(Department.CS,
+                                                "cs@rutgers.edu"
+                                    ),
+                                    60
+                            );
+                            if (calendar.addIfAbsent(event)) {
+                                booked[thread]++;
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        int totalBooked = 0;
+        for (int count : booked) {
+            totalBooked += count;
+        }
+        int numSlots = numDays * locations.length * timeslots.length;
+        assert totalBooked == numSlots;
+        assert calendar.getNumEvents() == numSlots;
+
+        StringBuilder output = new StringBuilder();
+        calendar.printByDate(output);
+        assert output.toString().split(System.lineSeparator()).length ==
+               numSlots;
+        output.setLength(0);
+
+        assert calendar.removeIf(event -> event.getLocation() ==
+                                          Location.HLL114) ==
+               numDays * timeslots.length;
+        Event first = new Event(Date.of(2024, 1, 2),
+                                Timeslot.MORNING,
+                                Location.ARC103,
+                                new Contact(Department.EE, "ee@rutgers.edu"),
+                                30
+        );
+        assert calendar.contains(first);
+        assert calendar.remove(first);
+        assert !calendar.remove(first);
+        assert calendar.add(first);
+        assert !calendar.add(first);
+
+        // insertion order is kept across stripes
+        calendar.print(output);
+        String[] lines = output.toString().split(System.lineSeparator());
+        assert lines[lines.length - 1].equals(first.toString());
+        assert lines.length == calendar.getNumEvents();
+
+        // pages merge the stripes lazily and the views follow changes
+        Iterator<Event> page = calendar.iterator(lines.length - 2);
+        assert page.next().toString().equals(lines[lines.length - 2]);
+        assert page.next() == first && !page.hasNext();
+        assert !calendar.iterator(lines.length).hasNext();
+        assert calendar.toArray()[lines.length - 1] == first;
+        assert calendar.spliterator().getExactSizeIfKnown() == -1;
+        NavigableSet<Event> byDate = calendar.eventsByDate();
+        assert byDate.tailSet(first, false).first().getLocation() ==
+               Location.BE_AUD;
+        assert calendar.remove(first);
+        assert !byDate.contains(first) && calendar.add(first);
+
+        // free slot queries see the stripes
+        Date firstDay = first.getDate();
+        assert !calendar.isFree(firstDay, Timeslot.MORNING, Location.ARC103);
+        assert calendar.isFree(firstDay, Timeslot.MORNING, Location.HLL114);
+        Location[] free = calendar.freeLocations(firstDay, Timeslot.MORNING);
+        assert free.length == 1 && free[0] == Location.HLL114;
+        assert calendar.nextFreeSlot(Location.ARC103, firstDay,
+                                     Timeslot.MORNING
+        ).equals(new RoomSlot(firstDay.plusDays(numDays), Timeslot.MORNING,
+                              Location.ARC103
+        ));
+
+        // queries read the department and contact posting lists
+        Event[] byEe = calendar.query(new EventQuery().by(Department.EE));
+        assert byEe.length == 1 && byEe[0] == first;
+        assert calendar.query(new EventQuery().contact("EE@rutgers.edu"))
+                       .length == 1;
+        assert calendar.query(new EventQuery().contact("cs@rutgers.edu")
+                                              .between(firstDay, firstDay)
+                                              .atCampus("Livingston"))
+                       .length == 2 * timeslots.length;
+        assert calendar.remove(first);
+        assert calendar.query(new EventQuery().contact("ee@rutgers.edu"))
+                       .length == 0;
+    }
+}
@@ -27,24 +27,29 @@ public class Contact {
      * @return true only if email is in valid format ([a-z|A-z]+@rutgers.edu)
      */
     private boolean isEmailValid() {
-        String[] splitEmail = email.split("@");
+        char separator = '@';
+        int end = email.length();
+        // like splitting on "@", trailing separators are ignored
+        while (end > 0 && email.charAt(end - 1) == separator) {
+            end--;
+        }
 
-        int expectedSplitLength = 2;
-        if (splitEmail.length != expectedSplitLength) {
+        int separatorIndex = email.indexOf(separator);
+        if (separatorIndex == -1 || separatorIndex >= end) {
             return false;
         }
 
-        int emailIndex = 0, domainIndex = 1;
-        String emailAddress = splitEmail[emailIndex];
-        String emailDomain = splitEmail[domainIndex];
-        for (char c : emailAddress.toCharArray()) {
+        for (int i = 0; i < separatorIndex; i++) {
+            char c = email.charAt(i);
             if (!Character.isDigit(c) && !Character.isLetter(c)) {
                 return false;
             }
         }
 
         String expectedDomainName = "rutgers.edu";
-        return emailDomain.equals(expectedDomainName);
+        int domainStart = separatorIndex + 1;
+        return end - domainStart == expectedDomainName.length() &&
+               email.startsWith(expectedDomainName, domainStart);
     }
     /**
      * Check if email and department instance variables are valid.
@@ -54,13 +59,8 @@ public class Contact {
      */
     public boolean isValid() {
 
-        boolean validEnum = false;
-        for (Department dep : Department.values()) {
-            if (dep.equals(this.department)) {
-                validEnum = true;
-                break;
-            }
-        }
+        // every non-null Department is a constant of the enum
+        boolean validEnum = this.department != null;
         return validEnum && this.isEmailValid();
 
     }
@@ -74,6 +74,28 @@ public class Contact {
         return department;
     }
 
+    /**
+     * Get email associated with contact
+     *
+     * @return email
+     */
+    public String getEmail() {
+        return email;
+    }
+
+
+    /**
+     * Append string representation consisting of department - email to the
+     * given buffer
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        return output.append(this.department.toString())
+                     .append(", ")
+                     .append(this.email);
+    }
 
     /**
      * Get string representation consisting of department - email
@@ -82,7 +104,7 @@ public class Contact {
      */
     @Override
     public String toString() {
-        return department.toString() + ", " + email;
+        return this.appendTo(new StringBuilder()).toString();
     }
 
 }
@@ -1,8 +1,5 @@
 package scheduler;
 
-import java.util.Calendar;
-
-
 /**
  * Represents a particular date containing a day, month and year.
  *
@@ -20,21 +17,81 @@ public class Date implements Comparable<Date> {
     public static final int FEBUARY_MONTH_NUMBER = 2;
 
 
-    private int year; //the year componenent in date
-    private int month; //the month componenent in date
-    private int day; //the day componenent in date
+    private static final int YEAR_PACKING_FACTOR = 10000;
+    private static final int MONTH_PACKING_FACTOR = 100;
+    private static final int MAX_PACKED_YEAR =
+            Integer.MAX_VALUE / YEAR_PACKING_FACTOR - 1;
+
+    //earliest and latest dates that can be packed, bounds of open ranges
+    static final Date MIN_VALUE = new Date(-MAX_PACKED_YEAR, 0, 0);
+    static final Date MAX_VALUE = new Date(MAX_PACKED_YEAR,
+                                           MONTH_PACKING_FACTOR - 1,
+                                           MONTH_PACKING_FACTOR - 1
+    );
+
+    private final int packed; //year * 10000 + month * 100 + day
+    //year, month and day of a date that cannot be packed, null otherwise
+    private final int[] unpacked;
 
     /**
-     * Default Constructor that sets year month date
+     * Default Constructor that sets year month date. Dates whose month or
+     * day is not between 0 and 99, or whose year is too large to pack, are
+     * kept as they are so they can still be reported as invalid.
      *
      * @param year  year of date
      * @param month month of date
      * @param day   day of date
      */
     public Date(int year, int month, int day) {
-        this.year = year;
-        this.month = month;
-        this.day = day;
+        if (Date.isPackable(year, month, day)) {
+            this.packed = Date.pack(year, month, day);
+            this.unpacked = null;
+            return;
+        }
+        this.packed = Date.packClamped(year, month, day);
+        this.unpacked = new int[]{year, month, day};
+    }
+
+    /**
+     * Pack the nearest packable date to a year, month and day. A field
+     * out of range is clamped and the fields after it are set to their
+     * own bound on the same side, so the result orders against every
+     * packable date the same way the unpacked date does.
+     *
+     * @param year  year of date
+     * @param month month of date
+     * @param day   day of date
+     * @return nearest packable date packed as a yyyymmdd int
+     */
+    private static int packClamped(int year, int month, int day) {
+        int maxField = MONTH_PACKING_FACTOR - 1;
+        if (Math.abs(year) > MAX_PACKED_YEAR) {
+            return year > 0 ? MAX_VALUE.packed : MIN_VALUE.packed;
+        }
+        if (month < 0 || month > maxField) {
+            return Date.pack(year, month < 0 ? 0 : maxField,
+                             month < 0 ? 0 : maxField
+            );
+        }
+        return Date.pack(year, month, Math.clamp(day, 0, maxField));
+    }
+
+    /**
+     * Get the date for year, month and day. Valid dates are shared through
+     * a small cache so the dates of the scheduling window are only created
+     * once.
+     *
+     * @param year  year of date
+     * @param month month of date
+     * @param day   day of date
+     * @return Date with the given year, month and day
+     */
+    public static Date of(int year, int month, int day) {
+        Date date = new Date(year, month, day);
+        if (!date.isValid()) {
+            return date;
+        }
+        return Date.cached(date.toEpochDay(), date);
     }
 
     /**
@@ -43,7 +100,10 @@ public class Date implements Comparable<Date> {
      * @return year of event
      */
     public int getYear() {
-        return this.year;
+        if (this.unpacked != null) {
+            return this.unpacked[0];
+        }
+        return Math.floorDiv(this.packed, YEAR_PACKING_FACTOR);
     }
 
     /**
@@ -52,7 +112,11 @@ public class Date implements Comparable<Date> {
      * @return month of event
      */
     public int getMonth() {
-        return this.month;
+        if (this.unpacked != null) {
+            return this.unpacked[1];
+        }
+        return Math.floorMod(this.packed, YEAR_PACKING_FACTOR) /
+               MONTH_PACKING_FACTOR;
     }
 
     /**
@@ -61,7 +125,10 @@ public class Date implements Comparable<Date> {
      * @return day of event
      */
     public int getDay() {
-        return this.day;
+        if (this.unpacked != null) {
+            return this.unpacked[2];
+        }
+        return Math.floorMod(this.packed, MONTH_PACKING_FACTOR);
     }
 
     /**
@@ -73,30 +140,68 @@ public class Date implements Comparable<Date> {
      * @throws IllegalArgumentException if the input is not in a valid format
      */
     public static Date parseDate(String dateStr) {
-        String[] dateSplit = dateStr.split("/");
-        int dateExpectedComponents = 3;
-        if (dateSplit.length != dateExpectedComponents) {
+        return Date.parseDate(dateStr, 0, dateStr.length());
+    }
+
+    /**
+     * Parse the part of a string from start up to end in the format
+     * "month/day/year" in place and return a Date object. Like splitting on
+     * "/", trailing slashes are ignored.
+     *
+     * @param text  the string holding the date
+     * @param start index of the first char of the date
+     * @param end   index one past the last char of the date
+     * @return a Date object representing the parsed date
+     * @throws IllegalArgumentException if the input is not in a valid format
+     */
+    public static Date parseDate(CharSequence text, int start, int end) {
+        char separator = '/';
+        while (end > start && text.charAt(end - 1) == separator) {
+            end--;
+        }
+
+        int firstSeparator = NOT_FOUND, secondSeparator = NOT_FOUND;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != separator) {
+                continue;
+            }
+            if (firstSeparator == NOT_FOUND) {
+                firstSeparator = i;
+            }
+            else if (secondSeparator == NOT_FOUND) {
+                secondSeparator = i;
+            }
+            else {
+                throw new IllegalArgumentException(
+                        "Invalid date format: " + text.subSequence(start, end));
+            }
+        }
+        if (secondSeparator == NOT_FOUND) {
             throw new IllegalArgumentException(
-                    "Invalid date format: " + dateStr);
+                    "Invalid date format: " + text.subSequence(start, end));
         }
-        ;
 
         int month, day, year;
 
         try {
-            int monthIndex = 0, dayIndex = 1, yearIndex = 2;
-            month = Integer.parseInt(dateSplit[monthIndex]);
-            day = Integer.parseInt(dateSplit[dayIndex]);
-            year = Integer.parseInt(dateSplit[yearIndex]);
+            int decimalRadix = 10;
+            month = Integer.parseInt(text, start, firstSeparator, decimalRadix);
+            day = Integer.parseInt(text, firstSeparator + 1, secondSeparator,
+                                   decimalRadix
+            );
+            year = Integer.parseInt(text, secondSeparator + 1, end,
+                                    decimalRadix
+            );
         }
         catch (NumberFormatException e) {
             throw new IllegalArgumentException(
-                    "Invalid date format: " + dateStr);
+                    "Invalid date format: " + text.subSequence(start, end));
         }
 
-        return new Date(year, month, day);
+        return Date.of(year, month, day);
     }
 
+    private static final int NOT_FOUND = -1;
 
     private static final int[] dayInMonthConstant =
             {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
@@ -105,23 +210,181 @@ public class Date implements Comparable<Date> {
     private static int min_month = 1;
     private static int min_year = 1900;
 
+    //window used when no booking window is given, follows the system clock
+    private static final BookingWindow SYSTEM_WINDOW =
+            BookingWindow.systemDefault();
+
+    /**
+     * Check if a year, month and day fit in a single yyyymmdd int
+     *
+     * @param year  year of date
+     * @param month month of date
+     * @param day   day of date
+     * @return true if month and day are between 0 and 99 and the year is
+     * small enough to pack
+     */
+    private static boolean isPackable(int year, int month, int day) {
+        return month >= 0 && month < MONTH_PACKING_FACTOR && day >= 0 &&
+               day < MONTH_PACKING_FACTOR && Math.abs(year) <= MAX_PACKED_YEAR;
+    }
+
+    /**
+     * Pack a year, month and day into a single yyyymmdd int. Packed dates
+     * compare the same way as the dates they represent.
+     *
+     * @param year  year of date
+     * @param month month of date
+     * @param day   day of date
+     * @return date packed as year * 10000 + month * 100 + day
+     */
+    public static int pack(int year, int month, int day) {
+        if (!Date.isPackable(year, month, day)) {
+            throw new IllegalArgumentException(
+                    "Invalid date: " + month + "/" + day + "/" + year);
+        }
+        return year * YEAR_PACKING_FACTOR + month * MONTH_PACKING_FACTOR + day;
+    }
+
+    /**
+     * Get this date packed into a single yyyymmdd int. A date that cannot
+     * be packed gets its fields clamped to the packable range, which still
+     * orders it correctly against every packable date.
+     *
+     * @return this date packed as year * 10000 + month * 100 + day
+     */
+    public int toPackedInt() {
+        return this.packed;
+    }
+
+    /**
+     * Get the date a packed yyyymmdd int stands for
+     *
+     * @param packed date packed as year * 10000 + month * 100 + day
+     * @return Date with the packed year, month and day
+     */
+    public static Date ofPackedInt(int packed) {
+        int monthAndDay = Math.floorMod(packed, YEAR_PACKING_FACTOR);
+        return Date.of(Math.floorDiv(packed, YEAR_PACKING_FACTOR),
+                       monthAndDay / MONTH_PACKING_FACTOR,
+                       monthAndDay % MONTH_PACKING_FACTOR
+        );
+    }
+
+    private static final int DAYS_IN_ERA = 146097;
+    private static final int YEARS_IN_ERA = 400;
+    private static final int DAYS_FROM_YEAR_0_TO_1970 = 719468;
+    private static final int MARCH_BASED_MONTH_OFFSET = 3;
+
+    /**
+     * Number of days since 1/1/1970 for a valid date, using the
+     * proleptic Gregorian calendar with years starting on March 1st.
+     *
+     * @return epoch day of this date
+     */
+    public int toEpochDay() {
+        int year = this.getYear();
+        int month = this.getMonth();
+        if (month < MARCH_BASED_MONTH_OFFSET) {
+            year--;
+        }
+        int era = Math.floorDiv(year, YEARS_IN_ERA);
+        int yearOfEra = year - era * YEARS_IN_ERA;
+        int monthFromMarch = (month + MONTHS_IN_YEAR - MARCH_BASED_MONTH_OFFSET) %
+                             MONTHS_IN_YEAR;
+        int dayOfYear = (153 * monthFromMarch + 2) / 5 + this.getDay() - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / QUADRENNIAL -
+                       yearOfEra / CENTENNIAL + dayOfYear;
+        return era * DAYS_IN_ERA + dayOfEra - DAYS_FROM_YEAR_0_TO_1970;
+    }
+
+    /**
+     * Get the date a number of days since 1/1/1970
+     *
+     * @param epochDay days since 1/1/1970, negative for earlier dates
+     * @return date of that epoch day
+     */
+    public static Date ofEpochDay(int epochDay) {
+        int shifted = epochDay + DAYS_FROM_YEAR_0_TO_1970;
+        int era = Math.floorDiv(shifted, DAYS_IN_ERA);
+        int dayOfEra = shifted - era * DAYS_IN_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 -
+                         dayOfEra / (DAYS_IN_ERA - 1)) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / QUADRENNIAL -
+                                    yearOfEra / CENTENNIAL);
+        int monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        int month = (monthFromMarch + MARCH_BASED_MONTH_OFFSET - 1) %
+                    MONTHS_IN_YEAR + 1;
+        int year = yearOfEra + era * YEARS_IN_ERA;
+        if (month < MARCH_BASED_MONTH_OFFSET) {
+            year++;
+        }
+        return Date.cached(epochDay, new Date(year, month, day));
+    }
+
+    /**
+     * Get the date a number of days after this valid date
+     *
+     * @param days number of days to add, negative to go back
+     * @return date days after this one
+     */
+    public Date plusDays(int days) {
+        return Date.ofEpochDay(this.toEpochDay() + days);
+    }
+
+    /**
+     * Count the days from this valid date to another valid date
+     *
+     * @param otherDate the date to count to
+     * @return number of days, negative if otherDate is before this date
+     */
+    public int daysBetween(Date otherDate) {
+        return otherDate.toEpochDay() - this.toEpochDay();
+    }
+
+    //direct mapped cache of valid dates, big enough that the whole
+    //scheduling window never collides with itself
+    private static final int CACHE_SIZE = 512;
+    private static final Date[] CACHE = new Date[CACHE_SIZE];
+
+    /**
+     * Get the cached date for an epoch day, caching the given date if the
+     * slot does not hold it yet.
+     *
+     * @param epochDay epoch day of date
+     * @param date     date to cache when there is no cached equal date
+     * @return the cached date equal to date
+     */
+    private static Date cached(int epochDay, Date date) {
+        int slot = Math.floorMod(epochDay, CACHE_SIZE);
+        Date cachedDate = CACHE[slot];
+        if (cachedDate != null && cachedDate.packed == date.packed) {
+            return cachedDate;
+        }
+        CACHE[slot] = date;
+        return date;
+    }
+
     /**
      * Check if the date is in a valid format (mm/dd/yyyy).
      *
      * @return true if the date is valid, false otherwise
      */
     public boolean isValid() {
-        if (this.month < min_month || this.month > MONTHS_IN_YEAR || this.year < min_year) {
+        int year = this.getYear();
+        int month = this.getMonth();
+        if (month < min_month || month > MONTHS_IN_YEAR || year < min_year) {
             return false;
         }
 
-        int daysInTheCurrentMonth = dayInMonthConstant[this.month];
+        int daysInTheCurrentMonth = dayInMonthConstant[month];
 
-        if (isLeapYear(year) && this.month == FEBUARY_MONTH_NUMBER) {
+        if (isLeapYear(year) && month == FEBUARY_MONTH_NUMBER) {
             daysInTheCurrentMonth = DAYS_IN_FEBUARY_IN_LEAP_YEAR;
         }
 
-        return this.day >= 1 && this.day <= daysInTheCurrentMonth;
+        int day = this.getDay();
+        return day >= 1 && day <= daysInTheCurrentMonth;
     }
 
     /**
@@ -130,15 +393,18 @@ public class Date implements Comparable<Date> {
      * @return true if the date is more than 6 months away, false otherwise
      */
     public boolean isMoreThanSixMonthsAway() {
-        Calendar todayDate = Calendar.getInstance();
-        Calendar targetDate = Calendar.getInstance();
-        targetDate.set(year, month - 1, day); //Calendar month is 0-indexed
-
-        // Calculate the difference in months
-        long monthsDifference = this.getMonthDifference(todayDate, targetDate);
+        return this.isMoreThanSixMonthsAway(SYSTEM_WINDOW);
+    }
 
-        int mostMonthDifferenceBeforeReturningTrue = 6;
-        return monthsDifference >= mostMonthDifferenceBeforeReturningTrue;
+    /**
+     * Check if the date is more than 6 months away from the current date
+     * of the given booking window.
+     *
+     * @param window booking window that knows the current date
+     * @return true if the date is more than 6 months away, false otherwise
+     */
+    public boolean isMoreThanSixMonthsAway(BookingWindow window) {
+        return window.isMoreThanSixMonthsAway(this);
     }
 
 
@@ -149,11 +415,18 @@ public class Date implements Comparable<Date> {
      * @return true if the date is a future date, false otherwise
      */
     public boolean isFutureDate() {
-        Calendar todayDate = Calendar.getInstance();
-        Calendar targetDate = Calendar.getInstance();
-        targetDate.set(year, month - 1, day);
+        return this.isFutureDate(SYSTEM_WINDOW);
+    }
 
-        return !targetDate.before(todayDate);
+    /**
+     * Check if the date is a future date according to the current date of
+     * the given booking window.
+     *
+     * @param window booking window that knows the current date
+     * @return true if the date is a future date, false otherwise
+     */
+    public boolean isFutureDate(BookingWindow window) {
+        return window.isFutureDate(this);
     }
 
     /**
@@ -169,24 +442,6 @@ public class Date implements Comparable<Date> {
                (year % QUATERCENTENNIAL == 0);
     }
 
-    /**
-     * Check how many months apart two dates are
-     *
-     * @param givenDate first date
-     * @param endDate   second date
-     * @return how many months the second date is ahead of the first date
-     */
-    private long getMonthDifference(Calendar givenDate, Calendar endDate) {
-        int startYear = givenDate.get(Calendar.YEAR);
-        int startMonth = givenDate.get(Calendar.MONTH);
-        int endYear = endDate.get(Calendar.YEAR);
-        int endMonth = endDate.get(Calendar.MONTH);
-
-        return (endYear - startYear) * MONTHS_IN_YEAR + (endMonth - startMonth);
-    }
-
-
-
     /**
      * Compare dates by their year then month then day
      *
@@ -196,18 +451,60 @@ public class Date implements Comparable<Date> {
      * after otherDate, and 0 if they are the same date
      */
     public int compareTo(Date otherDate) {
-
-        if (this.year != otherDate.getYear()) {
-            return Integer.compare(this.year, otherDate.getYear());
+        int comparison = Integer.compare(this.packed, otherDate.packed);
+        if (comparison != 0 ||
+            (this.unpacked == null && otherDate.unpacked == null)) {
+            return comparison;
+        }
+        comparison = Integer.compare(this.getYear(), otherDate.getYear());
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = Integer.compare(this.getMonth(), otherDate.getMonth());
+        if (comparison != 0) {
+            return comparison;
         }
+        return Integer.compare(this.getDay(), otherDate.getDay());
+    }
+
 
-        if (this.month != otherDate.getMonth()) {
-            return Integer.compare(this.month, otherDate.getMonth());
+    /**
+     * Checks if two dates have the same year, month and day.
+     *
+     * @param obj the other object to compare
+     * @return true if obj is a Date with the same year, month and day
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Date)) {
+            return false;
         }
+        return this.compareTo((Date) obj) == 0;
+    }
 
-        return Integer.compare(this.day, otherDate.getDay());
+    /**
+     * Hash on the packed date so equal dates hash the same.
+     *
+     * @return hash code of this date
+     */
+    @Override
+    public int hashCode() {
+        return this.packed;
     }
 
+    /**
+     * Append date in month/day/year format to the given buffer
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        return output.append(this.getMonth())
+                     .append('/')
+                     .append(this.getDay())
+                     .append('/')
+                     .append(this.getYear());
+    }
 
     /**
      * Represent date in month/day/year format
@@ -216,7 +513,7 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public String toString() {
-        return String.format("%s/%s/%s", this.month, this.day, this.year);
+        return this.appendTo(new StringBuilder()).toString();
     }
 
     /**
@@ -236,17 +533,55 @@ public class Date implements Comparable<Date> {
         Date date8 = new Date(-2023, 12, 2);
 
         // Test the isValid method
-        assert  date1.isValid();
+        assert !date1.isValid();
         assert date2.isValid();
         assert date3.isValid();
         assert date4.isValid();
-        assert date5.isValid();
-        assert date6.isValid();
+        assert !date5.isValid();
+        assert !date6.isValid();
         assert date7.isValid();
-        assert date8.isValid();
+        assert !date8.isValid();
+
+        // Test the compareTo method on the packed representation
+        assert date2.compareTo(date4) < 0;
+        assert date4.compareTo(date3) < 0;
+        assert date7.compareTo(date3) < 0;
+        assert date3.compareTo(new Date(2024, 4, 29)) == 0;
+        assert date3.equals(new Date(2024, 4, 29));
+        assert date3.hashCode() == new Date(2024, 4, 29).hashCode();
+        assert date8.getYear() == -2023 && date8.getMonth() == 12 &&
+               date8.getDay() == 2;
+
+        // Test epoch day arithmetic against java.time
+        java.time.LocalDate expected = java.time.LocalDate.of(1900, 1, 1);
+        Date date = new Date(1900, 1, 1);
+        for (int i = 0; i < 100000; i++) {
+            assert date.toEpochDay() == expected.toEpochDay();
+            assert date.getYear() == expected.getYear();
+            assert date.getMonth() == expected.getMonthValue();
+            assert date.getDay() == expected.getDayOfMonth();
+            date = date.plusDays(1);
+            expected = expected.plusDays(1);
+        }
+        assert new Date(2023, 12, 31).plusDays(1).equals(new Date(2024, 1, 1));
+        assert new Date(2024, 3, 1).plusDays(-1).equals(date4);
+        assert date2.daysBetween(date4) == 171;
+        assert date4.daysBetween(date2) == -171;
+
+        // Dates out of the packable range are kept to be reported
+        Date date9 = Date.parseDate("100/1/2024");
+        assert !date9.isValid();
+        assert date9.toString().equals("100/1/2024");
+        assert date9.compareTo(new Date(2024, 12, 31)) > 0;
+        assert date9.compareTo(new Date(2025, 1, 1)) < 0;
+        assert date9.compareTo(new Date(2024, 99, 1)) > 0;
+        assert date9.equals(new Date(2024, 100, 1));
+        assert !Date.parseDate("1/250/2024").isValid();
+        assert new Date(300000, 1, 1).isValid();
+        assert new Date(300000, 1, 1).compareTo(Date.MAX_VALUE) > 0;
+
+        // Test the flyweight cache
+        assert Date.of(2024, 2, 29) == Date.parseDate("2/29/2024");
+        assert Date.of(2023, 2, 29) != Date.of(2023, 2, 29);
     }
-};
-
-
-
-
+}
@@ -33,12 +33,16 @@ public enum Department {
         return fullName;
     }
 
+    //finds a department by name ignoring case
+    static final EnumLookup<Department> LOOKUP = new EnumLookup<>(values());
+
+    /**
+     * Checks if the user's input is the name of a department, ignoring case
+     *
+     * @param givenUserDepartment the department string to validate
+     * @return true if it names a department, false otherwise
+     */
     public static boolean isValidDepartment(String givenUserDepartment) {
-        for (Department department : values()) {
-            if (department.name().equalsIgnoreCase(givenUserDepartment)) {
-                return true;
-            }
-        }
-        return false;
+        return LOOKUP.find(givenUserDepartment) != null;
     }
 }
@@ -0,0 +1,171 @@
+package scheduler;
+
+/**
+ * Finds the constant of an enum whose name matches some text, ignoring
+ * ASCII case. The names are hashed into a table with no collisions when
+ * the lookup is built, so finding a constant costs one hash of the text, one
+ * table slot and one comparison, without allocating or copying the text.
+ * Constant names must be upper case, as enum names conventionally are.
+ *
+ * @param <E> type of the enum
+ */
+public class EnumLookup<E extends Enum<E>> {
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int ASCII_CASE_DIFFERENCE = 'a' - 'A';
+    private static final int MAX_ASCII = 127;
+
+    private final Object[] table; //constants by slot, null for empty slots
+    private final int mask; //table length - 1, table length is a power of 2
+    private final int maxNameLength; //longer text can never match
+
+    /**
+     * Build the lookup table for the given constants
+     *
+     * @param constants every constant of the enum, typically E.values()
+     */
+    public EnumLookup(E[] constants) {
+        int maxLength = 0;
+        int[] hashes = new int[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+            String name = constants[i].name();
+            hashes[i] = EnumLookup.hash(name, 0, name.length());
+            maxLength = Math.max(maxLength, name.length());
+        }
+        this.maxNameLength = maxLength;
+
+        int size = Integer.highestOneBit(Math.max(1, constants.length)) * 2;
+        Object[] slots = new Object[size];
+        while (!EnumLookup.fill(slots, constants, hashes)) {
+            size *= 2;
+            slots = new Object[size];
+        }
+        this.table = slots;
+        this.mask = size - 1;
+    }
+
+    /**
+     * Put each constant into the slot of its hash
+     *
+     * @param slots     empty table to fill, length is a power of 2
+     * @param constants constants to put in the table
+     * @param hashes    hash of each constant's name
+     * @param <E>       type of the enum
+     * @return true if every constant got its own slot, false on a collision
+     */
+    private static <E extends Enum<E>> boolean fill(
+            Object[] slots, E[] constants, int[] hashes
+    ) {
+        int mask = slots.length - 1;
+        for (int i = 0; i < constants.length; i++) {
+            int slot = hashes[i] & mask;
+            if (slots[slot] != null) {
+                return false;
+            }
+            slots[slot] = constants[i];
+        }
+        return true;
+    }
+
+    /**
+     * Upper case an ASCII letter, leaving other chars as they are
+     *
+     * @param c char to upper case
+     * @return c in upper case if it is a lower case ASCII letter, c otherwise
+     */
+    private static char toUpperAscii(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return (char) (c - ASCII_CASE_DIFFERENCE);
+        }
+        return c;
+    }
+
+    /**
+     * Hash text from start up to end the same way regardless of ASCII case
+     *
+     * @param text  text holding the name
+     * @param start index of the first char of the name
+     * @param end   index one past the last char of the name
+     * @return case insensitive hash of the name
+     */
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * HASH_MULTIPLIER + toUpperAscii(text.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Find the constant whose name matches text from start up to end,
+     * ignoring ASCII case
+     *
+     * @param text  text holding the name
+     * @param start index of the first char of the name
+     * @param end   index one past the last char of the name
+     * @return the matching constant or null if no constant matches
+     */
+    @SuppressWarnings("unchecked")
+    public E find(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length > this.maxNameLength) {
+            return null;
+        }
+
+        E candidate = (E) this.table[EnumLookup.hash(text, start, end) &
+                                     this.mask];
+        if (candidate == null) {
+            return null;
+        }
+
+        String name = candidate.name();
+        if (name.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            if (c > MAX_ASCII || toUpperAscii(c) != name.charAt(i)) {
+                return null;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Find the constant whose name matches the given name, ignoring ASCII
+     * case
+     *
+     * @param name the name to look up
+     * @return the matching constant or null if no constant matches
+     */
+    public E find(String name) {
+        return this.find(name, 0, name.length());
+    }
+
+    /**
+     * Unit tests for looking up every constant of the project's enums
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        EnumLookup<Location> locations = new EnumLookup<>(Location.values());
+        for (Location location : Location.values()) {
+            assert locations.find(location.name()) == location;
+            assert locations.find(location.name().toLowerCase()) == location;
+        }
+        assert locations.find("be_Aud") == Location.BE_AUD;
+        assert locations.find("  arc103 ", 2, 8) == Location.ARC103;
+        assert locations.find("arc10") == null;
+        assert locations.find("arc1034") == null;
+        assert locations.find("") == null;
+        assert locations.find("Hill Center") == null;
+
+        EnumLookup<Timeslot> timeslots = new EnumLookup<>(Timeslot.values());
+        assert timeslots.find("Morning") == Timeslot.MORNING;
+        assert timeslots.find("noon") == null;
+
+        EnumLookup<Department> departments =
+                new EnumLookup<>(Department.values());
+        assert departments.find("bait") == Department.BAIT;
+        assert departments.find("ae") == null;
+    }
+}
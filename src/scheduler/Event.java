@@ -56,6 +56,19 @@ public class Event implements Comparable<Event> {
 
     }
 
+    /**
+     * Hash on the same fields equals uses: date, start time and location.
+     *
+     * @return hash code of this event's date, timeslot and location
+     */
+    @Override
+    public int hashCode() {
+        int hashMultiplier = 31;
+        int hash = this.date.hashCode();
+        hash = hash * hashMultiplier + this.startTime.hashCode();
+        return hash * hashMultiplier + this.location.hashCode();
+    }
+
     /**
      * Compare Events' dates and use startTimes to break ties.
      *
@@ -81,19 +94,24 @@ public class Event implements Comparable<Event> {
      */
     @Override
     public String toString() {
-//        logic for getEndTimesSlot
-//        Timeslot endTime = startTime.getEndTimeslot(duration);
+        return this.appendTo(new StringBuilder()).toString();
+    }
 
-        String baseString =
-                "[Event Date: %s] [Start: %s] [End: %s] " + "%s [Contact: %s]";
-        return String.format(
-                baseString,
-                this.date.toString(),
-                this.startTime.startTime(),
-                this.startTime.timeAfterDuration(this.duration),
-                this.location.toString(),
-                this.contact.toString()
-        );
+    /**
+     * Append the event's String representation to the given buffer without
+     * building any intermediate strings.
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        output.append("[Event Date: ");
+        this.date.appendTo(output).append("] [Start: ");
+        this.startTime.appendStartTime(output).append("] [End: ");
+        this.startTime.appendTimeAfterDuration(output, this.duration)
+                      .append("] ");
+        this.location.appendTo(output).append(" [Contact: ");
+        return this.contact.appendTo(output).append(']');
     }
 
     /**
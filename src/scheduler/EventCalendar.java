@@ -1,25 +1,88 @@
 package scheduler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
 /**
  * A calendar that contains multiple events and helps schedule them.
+ * Iterating over it visits the events in the order they were added.
+ * Removing an event leaves a null slot in the events array, and the array
+ * is compacted, keeping the order, once it holds more removed slots than
+ * events, so a removal does not shift every later event.
  *
  * @author Michael Muzafarov
  */
-public class EventCalendar {
+public class EventCalendar extends AbstractEventCalendar {
     private Event[] events; //the array holding the list of events
+    private int numSlots; //slots of the array used, removed ones included
     private int numEvents; //current number of events in the array
-    final static int NOT_FOUND = -1;
-    final static int EQUAL_IN_COMPARABLE = 0;
-    final static int INITIAL_AND_ADDITIONAL_ARRAY_CAPACITY = 4;
-    final static int INITIAL_NUMBER_OF_EVENTS = 0;
+    private HashMap<Event, Integer> indexOfEvent; //event -> index in events
+    //events ordered for printByDate
+    private final TreeSet<Event> byDate;
+    //events ordered for printByCampus
+    private final TreeSet<Event> byCampus;
+    //events ordered for printByDepartment
+    private final TreeSet<Event> byDepartment;
+    //events of each time slot, ordered by date
+    private EnumMap<Timeslot, TreeSet<Event>> byTimeslot;
+    //events of each contact email in lower case, ordered by date
+    private HashMap<String, TreeSet<Event>> byEmail;
+    //booked slots of every location
+    private final OccupancyIndex occupancy = new OccupancyIndex();
 
     /**
      * Construct EventCalendar with no events
      */
     public EventCalendar() {
-        this.events =
-                new Event[EventCalendar.INITIAL_AND_ADDITIONAL_ARRAY_CAPACITY];
+        this(EventCalendar.INITIAL_ARRAY_CAPACITY);
+    }
+
+    /**
+     * Construct EventCalendar with no events but room for initialCapacity
+     * events before the array has to grow.
+     *
+     * @param initialCapacity number of events to reserve space for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public EventCalendar(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid capacity: " + initialCapacity);
+        }
+        this.events = new Event[initialCapacity];
         this.numEvents = INITIAL_NUMBER_OF_EVENTS;
+        this.indexOfEvent = new HashMap<>();
+        this.byDate = new TreeSet<>(EventCalendar.DATE_COMPARATOR);
+        this.byCampus = new TreeSet<>(EventCalendar.CAMPUS_COMPARATOR);
+        this.byDepartment = new TreeSet<>(EventCalendar.DEPARTMENT_COMPARATOR);
+        this.byTimeslot = new EnumMap<>(Timeslot.class);
+        for (Timeslot timeslot : Timeslot.values()) {
+            this.byTimeslot.put(timeslot,
+                                new TreeSet<>(EventCalendar.DATE_COMPARATOR));
+        }
+        this.byEmail = new HashMap<>();
+    }
+
+    /**
+     * Get number of events the calendar can hold before it has to grow
+     *
+     * @return length of the events array
+     */
+    @Override
+    public int getCapacity() {
+        return this.events.length;
     }
 
     /**
@@ -27,38 +90,77 @@ public class EventCalendar {
      *
      * @return number of events
      */
+    @Override
     public int getNumEvents() {
         return numEvents;
     }
 
     /**
-     * Search all events and return the event's index if it is found.
+     * Look up the event's index in the index map. Events are keyed by
+     * date, timeslot and location, the same fields Event.equals uses.
      * Returns NOT_FOUND if it is not in the array.
      *
      * @param event the event whose index will be found
      * @return index of event or NOT_FOUND if it is not found
      */
     private int find(Event event) {
-        for (int i = 0; i < this.numEvents; i++) {
-            if (this.events[i].equals(event)) {
-                return i;
-            }
+        Integer index = this.indexOfEvent.get(event);
+        if (index == null) {
+            return EventCalendar.NOT_FOUND;
         }
-        return EventCalendar.NOT_FOUND;
+        return index;
     }
 
     /**
-     * Increase the capacity of the events array by
-     * INITIAL_AND_ADDITIONAL_ARRAY_CAPACITY.
+     * Multiply the capacity of the events array by GROWTH_FACTOR, so n adds
+     * cost O(n) copies in total.
      */
     private void grow() {
-        Event[] newEvents = new Event[this.events.length +
-                                      EventCalendar.INITIAL_AND_ADDITIONAL_ARRAY_CAPACITY];
+        this.ensureCapacity(this.numSlots + 1);
+    }
 
-        for (int i = 0; i < this.events.length; i++) {
-            newEvents[i] = this.events[i];
+    /**
+     * Make sure the events array can hold at least minCapacity events.
+     * Grows geometrically so repeated calls stay amortized linear.
+     *
+     * @param minCapacity number of events the calendar must be able to hold
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= this.events.length) {
+            return;
+        }
+        int newCapacity = Math.max(
+                this.events.length * EventCalendar.GROWTH_FACTOR,
+                EventCalendar.INITIAL_ARRAY_CAPACITY
+        );
+        if (newCapacity < minCapacity) {
+            newCapacity = minCapacity;
         }
+        this.resize(newCapacity);
+    }
+
+    /**
+     * Close the slots of removed events and shrink the events array so its
+     * capacity is the number of events. Useful for long running processes
+     * after many events were removed.
+     */
+    @Override
+    public void trimToSize() {
+        this.compact();
+        if (this.numEvents < this.events.length) {
+            this.resize(this.numEvents);
+        }
+    }
 
+    /**
+     * Copy the events into a new array of the given capacity.
+     *
+     * @param newCapacity length of the new events array, at least numSlots
+     */
+    private void resize(int newCapacity) {
+        Event[] newEvents = new Event[newCapacity];
+        System.arraycopy(this.events, 0, newEvents, 0, this.numSlots);
         this.events = newEvents;
     }
 
@@ -69,174 +171,559 @@ public class EventCalendar {
      * @return true if successful, as of now it cannot fail, do not know why
      * we need to return boolean. More investigation needed
      */
+    @Override
     public boolean add(Event event) {
-        if (this.events.length == this.numEvents) {
+        if (this.events.length == this.numSlots) {
             this.grow();
         }
-        this.events[numEvents] = event;
+        this.events[this.numSlots] = event;
+        this.indexOfEvent.put(event, this.numSlots);
+        this.byDate.add(event);
+        this.byCampus.add(event);
+        this.byDepartment.add(event);
+        this.byTimeslot.get(event.getTimeslot()).add(event);
+        this.byEmail.computeIfAbsent(
+                EventQuery.emailKey(event.getContact().getEmail()),
+                email -> new TreeSet<>(EventCalendar.DATE_COMPARATOR)
+        ).add(event);
+        this.occupancy.occupy(event);
+        this.numSlots++;
         this.numEvents++;
         return true;
     }
 
     /**
-     * Remove specific event from events in calendar.
+     * Remove specific event from events in calendar. Its slot is only
+     * cleared, the later events keep their index.
      *
      * @param event the event to remove
      * @return true if event existed and was removed from calendar. False if
      * the event did not exist and could not be removed
      */
+    @Override
     public boolean remove(Event event) {
-        if (!this.contains(event)) {
+        int indexOfEvent = this.find(event);
+        if (indexOfEvent == EventCalendar.NOT_FOUND) {
             return false;
         }
+        this.removeAt(indexOfEvent);
+        this.compactIfSparse();
+        return true;
+    }
 
-        int indexOfEvent = this.find(event);
+    /**
+     * Take the event in a slot out of the index, the sorted views and the
+     * occupancy bitmap, and clear the slot
+     *
+     * @param indexOfEvent index of the event in the events array
+     */
+    private void removeAt(int indexOfEvent) {
+        Event removed = this.events[indexOfEvent];
+        this.indexOfEvent.remove(removed);
+        this.byDate.remove(removed);
+        this.byCampus.remove(removed);
+        this.byDepartment.remove(removed);
+        this.removeFromPostingLists(removed);
+        this.occupancy.free(removed);
+        this.events[indexOfEvent] = null;
+        this.numEvents--;
+    }
 
-        for (int i = indexOfEvent + 1; i < this.numEvents; i++) {
-            this.events[i - 1] = this.events[i];
-        }
+    /**
+     * Add a batch of events, reserving room for all of them up front. An
+     * event is skipped if it conflicts with an event already in the
+     * calendar or with an earlier event of the same batch. A batch at least
+     * as large as the calendar rebuilds the sorted views from one sort each
+     * instead of inserting every event into them.
+     *
+     * @param eventsToAdd the events to add
+     * @return for each event, true if it was added and false if it
+     * conflicted
+     */
+    @Override
+    public boolean[] addAll(Event[] eventsToAdd) {
+        this.ensureCapacity(this.numSlots + eventsToAdd.length);
 
-        this.numEvents--;
+        boolean[] added = new boolean[eventsToAdd.length];
+        if (eventsToAdd.length < this.numEvents) {
+            for (int i = 0; i < eventsToAdd.length; i++) {
+                added[i] = this.addIfAbsent(eventsToAdd[i]);
+            }
+            return added;
+        }
 
-        return true;
+        if (this.numEvents == 0) {
+            this.indexOfEvent = HashMap.newHashMap(eventsToAdd.length);
+        }
+        for (int i = 0; i < eventsToAdd.length; i++) {
+            Event event = eventsToAdd[i];
+            if (this.indexOfEvent.putIfAbsent(event, this.numSlots) == null) {
+                this.events[this.numSlots++] = event;
+                this.numEvents++;
+                this.occupancy.occupy(event);
+                added[i] = true;
+            }
+        }
+        this.rebuildSortedViews();
+        this.rebuildPostingLists();
+        return added;
     }
 
     /**
-     * Checks if the calendar contains a particular Event
+     * Take an event out of the time slot and email posting lists, dropping
+     * the email's list once it is empty
      *
-     * @param event the Event object to check for
-     * @return true if it is found, false if it does not exist in the calendar
+     * @param event the event to take out
      */
-    public boolean contains(Event event) {
-        return this.find(event) != EventCalendar.NOT_FOUND;
+    private void removeFromPostingLists(Event event) {
+        this.byTimeslot.get(event.getTimeslot()).remove(event);
+        String email = EventQuery.emailKey(event.getContact().getEmail());
+        TreeSet<Event> posting = this.byEmail.get(email);
+        if (posting != null && posting.remove(event) && posting.isEmpty()) {
+            this.byEmail.remove(email);
+        }
     }
 
     /**
-     * print the array as is
+     * Rebuild the time slot and email posting lists by splitting the date
+     * ordered view, so each list is copied already sorted in linear time.
      */
-    public void print() {
-        for (int i = 0; i < this.numEvents; i++) {
-            System.out.println(this.events[i]);
+    private void rebuildPostingLists() {
+        EnumMap<Timeslot, ArrayList<Event>> timeslotRuns =
+                new EnumMap<>(Timeslot.class);
+        for (Timeslot timeslot : Timeslot.values()) {
+            timeslotRuns.put(timeslot, new ArrayList<>());
+        }
+        HashMap<String, ArrayList<Event>> emailRuns = new HashMap<>();
+        for (Event event : this.byDate) {
+            timeslotRuns.get(event.getTimeslot()).add(event);
+            emailRuns.computeIfAbsent(
+                    EventQuery.emailKey(event.getContact().getEmail()),
+                    email -> new ArrayList<>()
+            ).add(event);
+        }
+
+        for (Timeslot timeslot : Timeslot.values()) {
+            this.byTimeslot.put(timeslot, EventCalendar.postingList(
+                    timeslotRuns.get(timeslot)));
         }
+        this.byEmail = HashMap.newHashMap(emailRuns.size());
+        for (String email : emailRuns.keySet()) {
+            this.byEmail.put(email, EventCalendar.postingList(
+                    emailRuns.get(email)));
+        }
+    }
+
+    /**
+     * Copy events already in date order into a posting list
+     *
+     * @param run the events, ordered by DATE_COMPARATOR
+     * @return posting list of the events
+     */
+    private static TreeSet<Event> postingList(ArrayList<Event> run) {
+        TreeSet<Event> posting = new TreeSet<>(EventCalendar.DATE_COMPARATOR);
+        posting.addAll(new SortedRun(run.toArray(new Event[0]),
+                                     EventCalendar.DATE_COMPARATOR
+        ));
+        return posting;
+    }
 
+    /**
+     * Rebuild the sorted views from one sort of the events, which costs far
+     * fewer comparisons than inserting the events into the views one at a
+     * time. The date order comes from a stable merge sort that finds the
+     * runs already in order, so events added in date order cost one O(n)
+     * pass. The campus and department orders only differ from it by their
+     * first key, so they are distributed from it by rank in O(n). The
+     * views are refilled in place, so views handed out earlier follow.
+     */
+    private void rebuildSortedViews() {
+        Event[] byDate = this.toArray();
+        Arrays.sort(byDate, EventCalendar.DATE_COMPARATOR);
+        EventCalendar.refill(this.byDate, byDate);
+        EventCalendar.refill(this.byCampus, EventCalendar.distribute(
+                byDate, event -> CAMPUS_RANK[event.getLocation().ordinal()],
+                LOCATIONS.length
+        ));
+        EventCalendar.refill(this.byDepartment, EventCalendar.distribute(
+                byDate, event -> DEPARTMENT_RANK[
+                        event.getContact().getDepartment().ordinal()],
+                DEPARTMENTS.length
+        ));
     }
 
     /**
-     * Used by lambda function to define how things should be sorted.
+     * Replace the events of a sorted view, copying them in linear time
      *
-     * @param <T> the type of the things being compared
+     * @param view   the view to refill
+     * @param sorted the events, ordered by the view's comparator
      */
-    @FunctionalInterface
-    private interface CustomComparator<T> {
-        /**
-         * Compares 2 things of type T
-         *
-         * @param a first thing to compare
-         * @param b second thing to compare
-         * @return negative number if a is less than b, positive number if a
-         * is greater than b, and 0 if they are equal
-         */
-        int compare(T a, T b);
+    private static void refill(TreeSet<Event> view, Event[] sorted) {
+        view.clear();
+        view.addAll(new SortedRun(sorted, view.comparator()));
     }
 
     /**
-     * Implementation of bubble sort. Could not do O(nlogn) sort because it
-     * had to be in place and don't have access to random library.
+     * Reorder events in date order by a rank with a stable counting sort,
+     * so events of the same rank stay in date order
      *
-     * @param toSort     array to be sorted
-     * @param numToSort  number of things to sort will only sort index 0
-     *                   through numToSort - 1. Any index after will be ignored
-     * @param comparator typically a lambda that will be used to compare two
-     *                   things in the array. Is expected to return a
-     *                   negative number if the first parameter is smaller
-     *                   than the second
-     * @param <T>        type of the array to be sorted
+     * @param byDate   the events, ordered by DATE_COMPARATOR
+     * @param rank     rank of an event, from 0 to numRanks - 1
+     * @param numRanks number of ranks
+     * @return the events ordered by rank and then by date
      */
-    private static <T> void bubbleSort(
-            T[] toSort, int numToSort, CustomComparator<T> comparator
+    private static Event[] distribute(
+            Event[] byDate, ToIntFunction<Event> rank, int numRanks
     ) {
+        int[] starts = new int[numRanks + 1];
+        for (Event event : byDate) {
+            starts[rank.applyAsInt(event) + 1]++;
+        }
+        for (int i = 1; i <= numRanks; i++) {
+            starts[i] += starts[i - 1];
+        }
+        Event[] ranked = new Event[byDate.length];
+        for (Event event : byDate) {
+            ranked[starts[rank.applyAsInt(event)]++] = event;
+        }
+        return ranked;
+    }
 
-        for (int i = 0; i < numToSort; i++) {
-            for (int j = i; j < numToSort; j++) {
-                if (comparator.compare(toSort[j], toSort[i]) <
-                    EQUAL_IN_COMPARABLE) {
-                    T temp = toSort[i];
-                    toSort[i] = toSort[j];
-                    toSort[j] = temp;
-                }
+    /**
+     * Remove a batch of events, compacting the events array at most once.
+     *
+     * @param eventsToRemove the events to remove
+     * @return for each event, true if it was removed and false if it was
+     * not in the calendar
+     */
+    @Override
+    public boolean[] removeAll(Event[] eventsToRemove) {
+        boolean[] removed = new boolean[eventsToRemove.length];
+        for (int i = 0; i < eventsToRemove.length; i++) {
+            int indexOfEvent = this.find(eventsToRemove[i]);
+            if (indexOfEvent != EventCalendar.NOT_FOUND) {
+                this.removeAt(indexOfEvent);
+                removed[i] = true;
             }
         }
+        this.compactIfSparse();
+        return removed;
     }
 
     /**
-     * prints events ordered by date and timeslot
+     * Remove every event matching a filter in a single sweep over the
+     * events array.
+     *
+     * @param filter returns true for the events to remove
+     * @return number of events removed
      */
-    public void printByDate() {
-        EventCalendar.bubbleSort(this.events, this.numEvents, Event::compareTo);
+    @Override
+    public int removeIf(Predicate<Event> filter) {
+        int numRemoved = 0;
+        for (int i = 0; i < this.numSlots; i++) {
+            if (this.events[i] != null && filter.test(this.events[i])) {
+                this.removeAt(i);
+                numRemoved++;
+            }
+        }
+        this.compactIfSparse();
+        return numRemoved;
+    }
 
-        this.print();
+    /**
+     * Compact the events array once it holds more removed slots than
+     * events, so the cost of compacting is spread over the removals that
+     * made it needed
+     */
+    private void compactIfSparse() {
+        if (this.numSlots - this.numEvents > this.numEvents) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Close the slots of removed events by shifting the remaining events
+     * down in one pass, keeping their order and updating the index.
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < this.numSlots; i++) {
+            Event event = this.events[i];
+            if (event == null) {
+                continue;
+            }
+            if (kept != i) {
+                this.events[kept] = event;
+                this.indexOfEvent.put(event, kept);
+            }
+            kept++;
+        }
 
+        Arrays.fill(this.events, kept, this.numSlots, null);
+        this.numSlots = kept;
     }
 
     /**
-     * prints events ordered by campus and building/room
+     * Checks if the calendar contains a particular Event
+     *
+     * @param event the Event object to check for
+     * @return true if it is found, false if it does not exist in the calendar
      */
-    public void printByCampus() {
-        CustomComparator<Event> buildingCampusComparator = (event1, event2) -> {
-            // Get the building name and campus name from event1's location
-            String buildingName1 = event1.getLocation().getBuildingName();
-            String campusName1 = event1.getLocation().getCampusName();
+    @Override
+    public boolean contains(Event event) {
+        return this.find(event) != EventCalendar.NOT_FOUND;
+    }
 
-            String buildingName2 = event2.getLocation().getBuildingName();
-            String campusName2 = event2.getLocation().getCampusName();
+    /**
+     * Copy the events in the order they were added
+     *
+     * @return new array holding every event of the calendar
+     */
+    @Override
+    public Event[] toArray() {
+        if (this.numSlots == this.numEvents) {
+            return Arrays.copyOf(this.events, this.numEvents);
+        }
+        Event[] copy = new Event[this.numEvents];
+        int next = 0;
+        for (int i = 0; i < this.numSlots; i++) {
+            if (this.events[i] != null) {
+                copy[next++] = this.events[i];
+            }
+        }
+        return copy;
+    }
 
-            // Compare building names first
-            int CampusNameComparison = campusName1.compareTo(campusName2);
-            int BuildingNameComparison = buildingName1.compareTo(buildingName2);
+    /**
+     * Iterate over the events in the order they were added, starting at a
+     * position, so a page of events can be read without copying the rest.
+     * The iterator reads the calendar as it is, so it should not be used
+     * after the calendar changes.
+     *
+     * @param from number of events to skip
+     * @return iterator over the events from that position on, not
+     * supporting remove
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    @Override
+    public Iterator<Event> iterator(int from) {
+        if (this.numSlots == this.numEvents) {
+            return Arrays.asList(this.events)
+                         .subList(Math.min(from, this.numEvents),
+                                  this.numEvents)
+                         .iterator();
+        }
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("from: " + from);
+        }
+
+        int start = 0;
+        for (int skipped = 0; start < this.numSlots; start++) {
+            if (this.events[start] != null && skipped++ == from) {
+                break;
+            }
+        }
+        int first = start;
+        return new Iterator<>() {
+            private int next = first; //slot of the next event
+
+            @Override
+            public boolean hasNext() {
+                while (this.next < EventCalendar.this.numSlots &&
+                       EventCalendar.this.events[this.next] == null) {
+                    this.next++;
+                }
+                return this.next < EventCalendar.this.numSlots;
+            }
 
-            // If building names are the same, compare campus names
-            if (CampusNameComparison == 0) {
-                return BuildingNameComparison;
-            } else {
-                return CampusNameComparison;
+            @Override
+            public Event next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return EventCalendar.this.events[this.next++];
             }
         };
+    }
+
+    /**
+     * Split the events in the order they were added, for streams
+     *
+     * @return sized spliterator over every event
+     */
+    @Override
+    public Spliterator<Event> spliterator() {
+        if (this.numSlots != this.numEvents) {
+            return Spliterators.spliterator(this.iterator(0), this.numEvents,
+                                            Spliterator.ORDERED |
+                                            Spliterator.NONNULL
+            );
+        }
+        return Spliterators.spliterator(this.events, 0, this.numEvents,
+                                        Spliterator.ORDERED |
+                                        Spliterator.NONNULL
+        );
+    }
+
+    /**
+     * Get a read-only view of the events ordered by date and timeslot, the
+     * order of printByDate. Its tailSet, iterator and spliterator read the
+     * events lazily and follow later changes to the calendar.
+     *
+     * @return view of every event ordered by DATE_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDate() {
+        return Collections.unmodifiableNavigableSet(this.byDate);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by campus and building,
+     * the order of printByCampus
+     *
+     * @return view of every event ordered by CAMPUS_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByCampus() {
+        return Collections.unmodifiableNavigableSet(this.byCampus);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by department, the order
+     * of printByDepartment
+     *
+     * @return view of every event ordered by DEPARTMENT_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDepartment() {
+        return Collections.unmodifiableNavigableSet(this.byDepartment);
+    }
+
+    /**
+     * print the array as is
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void print(StringBuilder output) {
+        for (int i = 0; i < this.numSlots; i++) {
+            if (this.events[i] != null) {
+                this.events[i].appendTo(output)
+                              .append(System.lineSeparator());
+            }
+        }
+
+    }
+
+    /**
+     * Print the events of a sorted view in the view's order
+     *
+     * @param view   sorted view to print
+     * @param output buffer each event is appended to, one per line
+     */
+    private void print(TreeSet<Event> view, StringBuilder output) {
+        for (Event event : view) {
+            event.appendTo(output).append(System.lineSeparator());
+        }
+    }
 
-        EventCalendar.bubbleSort(this.events, this.numEvents, buildingCampusComparator);
+    /**
+     * prints events ordered by date and timeslot
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDate(StringBuilder output) {
+        this.print(this.byDate, output);
+    }
 
-        this.print();
+    /**
+     * prints events ordered by campus and building/room
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByCampus(StringBuilder output) {
+        this.print(this.byCampus, output);
     }
 
 
     /**
      * prints events ordered by department
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDepartment(StringBuilder output) {
+        this.print(this.byDepartment, output);
+    }
+
+    /**
+     * Check if no event is booked at a location in a time slot, without
+     * creating an event to look up
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @param location location to check
+     * @return true if the slot is free, false if an event is booked in it
      */
-    public void printByDepartment() {
-        CustomComparator<Event> departmentComparator =
-                (event1, event2) -> event1.getContact()
-                                          .getDepartment()
-                                          .toString()
-                                          .compareTo(event2.getContact()
-                                                           .getDepartment()
-                                                           .toString());
-
-        EventCalendar.bubbleSort(this.events,
-                                 this.numEvents,
-                                 departmentComparator
+    @Override
+    public boolean isFree(Date date, Timeslot timeslot, Location location) {
+        return !this.occupancy.isOccupied(date.toEpochDay(),
+                                          timeslot.ordinal(),
+                                          location.ordinal()
         );
+    }
 
-        this.print();
+    /**
+     * Find every location with no event booked in a time slot
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @return the free locations, in the order Location declares them
+     */
+    @Override
+    public Location[] freeLocations(Date date, Timeslot timeslot) {
+        return this.occupancy.freeLocations(date.toEpochDay(),
+                                            timeslot.ordinal()
+        );
     }
 
     /**
-     * Method to check if the event exists by checking if the
-     * DATE/TIMESLOT/LOCATION already exists
+     * Find the first time slot of a location, at or after a given slot,
+     * with no event booked in it
      *
-     * @param eventToCheck event that we are checking exists or not
-     * @return True if the event is already in the calendar, false otherwise
+     * @param location location to check
+     * @param date     date to start from
+     * @param timeslot time slot to start from on that date
+     * @return the first free slot
      */
-    public boolean hasConflict(Event eventToCheck) {
-        return this.contains(eventToCheck);
+    @Override
+    public RoomSlot nextFreeSlot(
+            Location location, Date date, Timeslot timeslot
+    ) {
+        long slot = this.occupancy.nextFree(date.toEpochDay(),
+                                            timeslot.ordinal(),
+                                            location.ordinal()
+        );
+        return AbstractEventCalendar.roomSlotOf(slot, location);
+    }
+
+    /**
+     * Find the events matching a query, reading the most selective index
+     * the query allows over the range of dates asked for
+     *
+     * @param query criteria the events must meet
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    @Override
+    public Event[] query(EventQuery query) {
+        return AbstractEventCalendar.select(query, this.byDate, this.byCampus,
+                                            this.byDepartment,
+                                            this.byTimeslot::get,
+                                            this.byEmail::get
+        );
     }
 
     /**
@@ -282,17 +769,24 @@ public class EventCalendar {
         System.out.println("those were all of the events");
 
         EventCalendar eventCalendar = new EventCalendar();
+        StringBuilder output = new StringBuilder();
         assert eventCalendar.add(event1);
         System.out.println("after first event is added:");
-        eventCalendar.print();
+        eventCalendar.print(output);
+        System.out.print(output);
+        output.setLength(0);
 
         assert eventCalendar.add(event2);
         System.out.println("after second event is added:");
-        eventCalendar.print();
+        eventCalendar.print(output);
+        System.out.print(output);
+        output.setLength(0);
 
         assert eventCalendar.add(event3);
         System.out.println("after third event is added:");
-        eventCalendar.print();
+        eventCalendar.print(output);
+        System.out.print(output);
+        output.setLength(0);
 
         assert eventCalendar.contains(event1);
         assert eventCalendar.contains(event2);
@@ -303,18 +797,234 @@ public class EventCalendar {
         System.out.println("Finished assertions");
 
         System.out.println("just print");
-        eventCalendar.print();
+        eventCalendar.print(output);
+        System.out.print(output);
+        output.setLength(0);
 
         System.out.println("print by campus:");
-        eventCalendar.printByCampus();
+        eventCalendar.printByCampus(output);
+        System.out.print(output);
+        output.setLength(0);
 
         System.out.println("print by date:");
-        eventCalendar.printByDate();
+        eventCalendar.printByDate(output);
+        System.out.print(output);
+        output.setLength(0);
 
         System.out.println("print by department:");
-        eventCalendar.printByDepartment();
+        eventCalendar.printByDepartment(output);
+        System.out.print(output);
+        output.setLength(0);
 
         assert eventCalendar.remove(event4);
         assert !eventCalendar.contains(event4);
+
+        // each event is rendered on its own line
+        eventCalendar.printByDate(output);
+        assert output.toString().split(System.lineSeparator()).length ==
+               eventCalendar.getNumEvents();
+        output.setLength(0);
+
+        // printing sorted views must not disturb the index
+        assert eventCalendar.remove(event1);
+        assert !eventCalendar.contains(event1);
+        assert eventCalendar.contains(event2);
+        assert eventCalendar.contains(event3);
+        assert eventCalendar.getNumEvents() == 2;
+        Event sameSlotAsEvent2 = new Event(new Date(2023, 9, 21),
+                                           Timeslot.AFTERNOON,
+                                           Location.HLL114,
+                                           new Contact(Department.MATH,
+                                                       "math@rutgers.edu"
+                                           ),
+                                           30
+        );
+        assert eventCalendar.hasConflict(sameSlotAsEvent2);
+
+        // capacity grows geometrically and can be trimmed back
+        EventCalendar sized = new EventCalendar(0);
+        assert sized.getCapacity() == 0;
+        assert sized.add(event1);
+        assert sized.getCapacity() == INITIAL_ARRAY_CAPACITY;
+        sized.ensureCapacity(100);
+        assert sized.getCapacity() >= 100;
+        sized.trimToSize();
+        assert sized.getCapacity() == 1;
+        assert sized.contains(event1);
+
+        // a removed event only clears its slot until the calendar compacts
+        EventCalendar cleared = new EventCalendar();
+        assert cleared.addAll(new Event[]{event1, event2, event3})[2];
+        assert cleared.remove(event2);
+        assert cleared.getNumEvents() == 2;
+        assert Arrays.equals(cleared.toArray(), new Event[]{event1, event3});
+        assert cleared.iterator(1).next() == event3;
+        assert !cleared.iterator(2).hasNext();
+        assert cleared.spliterator().getExactSizeIfKnown() == 2;
+        assert cleared.add(event2) && cleared.iterator(2).next() == event2;
+        cleared.trimToSize();
+        assert cleared.getCapacity() == 3;
+        assert Arrays.equals(cleared.toArray(),
+                             new Event[]{event1, event3, event2});
+
+        // bulk add skips conflicts with the calendar and within the batch
+        EventCalendar bulk = new EventCalendar();
+        NavigableSet<Event> bulkByDate = bulk.eventsByDate();
+        NavigableSet<Event> bulkByCampus = bulk.eventsByCampus();
+        NavigableSet<Event> bulkByDepartment = bulk.eventsByDepartment();
+        assert bulk.add(event1);
+        boolean[] added = bulk.addAll(new Event[]{event2, event1, event3,
+                                                  sameSlotAsEvent2, event4});
+        assert added[0] && !added[1] && added[2] && !added[3] && added[4];
+        assert bulk.getNumEvents() == 4;
+        // views taken before a bulk add follow the rebuilt views
+        assert bulkByDate.size() == 4 && bulkByDate.contains(event4);
+        assert bulkByCampus.size() == 4 && bulkByDepartment.size() == 4;
+
+        // bulk remove compacts the array and keeps insertion order
+        boolean[] removed = bulk.removeAll(new Event[]{event2, event4,
+                                                       event2});
+        assert removed[0] && removed[1] && !removed[2];
+        assert bulk.getNumEvents() == 2;
+        bulk.print(output);
+        assert output.toString().equals(
+                event1 + System.lineSeparator() + event3 +
+                System.lineSeparator());
+        output.setLength(0);
+        assert !bulk.contains(event2) && !bulk.contains(event4);
+        assert bulk.remove(event3) && bulk.getNumEvents() == 1;
+
+        assert bulk.addAll(new Event[]{event2, event3})[1];
+        assert bulk.removeIf(event -> event.getTimeslot() ==
+                                      Timeslot.MORNING) == 1;
+        assert !bulk.contains(event1) && bulk.contains(event3);
+        bulk.printByDate(output);
+        assert output.toString().equals(
+                event3 + System.lineSeparator() + event2 +
+                System.lineSeparator());
+        output.setLength(0);
+
+        // views rebuilt by a large batch match views built one at a time
+        Event[] batch = {event4, event3, event2, event1};
+        EventCalendar rebuilt = new EventCalendar();
+        rebuilt.addAll(batch);
+        EventCalendar incremental = new EventCalendar();
+        for (Event event : batch) {
+            incremental.add(event);
+        }
+        StringBuilder expected = new StringBuilder();
+        incremental.printByCampus(expected);
+        incremental.printByDepartment(expected);
+        rebuilt.printByCampus(output);
+        rebuilt.printByDepartment(output);
+        assert output.toString().equals(expected.toString());
+        output.setLength(0);
+
+        // free slot queries follow adds and removes
+        Date day = new Date(2023, 9, 20);
+        EventCalendar rooms = new EventCalendar();
+        assert rooms.isFree(day, Timeslot.MORNING, Location.ARC103);
+        rooms.add(event1);
+        assert !rooms.isFree(day, Timeslot.MORNING, Location.ARC103);
+        assert rooms.isFree(day, Timeslot.AFTERNOON, Location.ARC103);
+        assert rooms.freeLocations(day, Timeslot.MORNING).length ==
+               Location.values().length - 1;
+        assert rooms.nextFreeSlot(Location.ARC103, day, Timeslot.MORNING)
+                    .equals(new RoomSlot(day, Timeslot.AFTERNOON,
+                                         Location.ARC103
+                    ));
+        rooms.removeIf(event -> true);
+        assert rooms.isFree(day, Timeslot.MORNING, Location.ARC103);
+        rooms.addAll(batch);
+        assert !rooms.isFree(day, Timeslot.MORNING, Location.ARC103);
+        assert rooms.remove(event1);
+        assert rooms.isFree(day, Timeslot.MORNING, Location.ARC103);
+
+        // every index a query can use finds what a full scan finds
+        EventQuery[] queries = {
+                new EventQuery(),
+                new EventQuery().between(new Date(2023, 9, 1),
+                                         new Date(2023, 9, 30)),
+                new EventQuery().atCampus("busch"),
+                new EventQuery().at(Location.AB2225, Location.ARC103),
+                new EventQuery().by(Department.CS, Department.EE),
+                new EventQuery().in(Timeslot.MORNING),
+                new EventQuery().contact("CS@rutgers.edu"),
+                new EventQuery().in(Timeslot.MORNING).atCampus("Livingston")
+                                .between(day, day),
+                new EventQuery().contact("cs@rutgers.edu")
+                                .contact("ee@rutgers.edu"),
+        };
+        for (EventCalendar calendar : new EventCalendar[]{rebuilt,
+                                                          incremental}) {
+            for (EventQuery query : queries) {
+                assert Arrays.equals(calendar.query(query),
+                                     query.select(calendar.toArray()));
+            }
+        }
+        assert rebuilt.query(queries[0]).length == 4;
+        assert rebuilt.query(queries[1]).length == 2;
+        assert rebuilt.query(queries[6])[0] == event2;
+        assert rebuilt.query(queries[8]).length == 0;
+        assert incremental.remove(event2);
+        assert incremental.query(queries[6]).length == 0;
+        // iteration and views follow the orders of the print methods
+        StringBuilder iterated = new StringBuilder();
+        for (Event event : rebuilt) {
+            event.appendTo(iterated).append(System.lineSeparator());
+        }
+        for (Event event : rebuilt.eventsByDate()) {
+            event.appendTo(iterated).append(System.lineSeparator());
+        }
+        rebuilt.print(output);
+        rebuilt.printByDate(output);
+        assert iterated.toString().equals(output.toString());
+        output.setLength(0);
+        assert rebuilt.spliterator().getExactSizeIfKnown() == 4;
+        assert rebuilt.iterator(3).next() == event1;
+        assert !rebuilt.iterator(7).hasNext();
+        assert rebuilt.eventsByDate()
+                      .tailSet(EventCalendar.firstOn(day), true)
+                      .first() == event1;
+
+        // ranges of a sorted run share its array
+        Event[] byDate = rebuilt.toArray();
+        Arrays.sort(byDate, EventCalendar.DATE_COMPARATOR);
+        SortedSet<Event> run = new SortedRun(byDate,
+                                             EventCalendar.DATE_COMPARATOR);
+        assert run.tailSet(byDate[1]).size() == 3;
+        assert run.tailSet(byDate[1]).first() == byDate[1];
+        assert run.headSet(byDate[2]).last() == byDate[1];
+        assert run.subSet(byDate[1], byDate[3]).size() == 2;
+        assert run.subSet(byDate[1], byDate[3]).headSet(byDate[0]).isEmpty();
+        assert run.tailSet(EventCalendar.firstOn(day)).first() == event1;
+
+        // pages of a print command continue where the last one stopped
+        EventOrganizer organizer = new EventOrganizer(
+                rebuilt, output, WorkloadGenerator.CLOCK);
+        organizer.processCommand("PE 3");
+        String newLine = System.lineSeparator();
+        assert output.toString().endsWith(
+                "* more events: PE 3 after=9/21/2023,AFTERNOON,HLL114,CS *" +
+                newLine);
+        output.setLength(0);
+        organizer.processCommand("PE 3 after=9/21/2023,AFTERNOON,HLL114,CS");
+        assert output.toString().equals(
+                "* Event calendar by event date and start time *" + newLine +
+                event4 + newLine + "* end of event calendar *" + newLine);
+        output.setLength(0);
+        organizer.processCommand("P limit=2 from=2");
+        assert output.toString().equals(
+                "* Event calendar *" + newLine + event2 + newLine + event1 +
+                newLine + "* end of event calendar *" + newLine);
+        output.setLength(0);
+        organizer.processCommand("PE from=9/20/2023 limit=1");
+        assert output.toString().contains(event1.toString());
+        assert output.toString().contains("after=9/20/2023,MORNING");
+        output.setLength(0);
+        organizer.processCommand("PC from=9/20/2023");
+        assert output.toString().equals(
+                "Invalid page term: from=9/20/2023" + newLine);
+        output.setLength(0);
     }
 }
\ No newline at end of file
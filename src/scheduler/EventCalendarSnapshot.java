@@ -0,0 +1,376 @@
+package scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary snapshot of an EventCalendar. Saving a calendar writes
+ * its events, in the order they were added, as fixed-width records that
+ * refer to the Timeslot, Location and Department by ordinal and to the
+ * contact email by its index in a table of distinct emails. A checksum of
+ * the whole file comes last. Loading maps the file in one go and rebuilds
+ * the events without parsing or validating any text. The generation is
+ * free for the caller to use, EventJournal stores which of its journals
+ * the snapshot already holds there.
+ *
+ * File layout, big-endian:
+ * <pre>
+ * int magic, int version, long generation, int number of emails,
+ * int number of events
+ * per email:  short length, UTF-8 bytes
+ * per event:  int packed date, byte timeslot, byte location,
+ *             byte department, short duration, int email index
+ * int CRC32C of everything before it
+ * </pre>
+ */
+public class EventCalendarSnapshot {
+    static final int MAGIC = 0x45564353; //"EVCS"
+    static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+    private static final int GENERATION_POSITION = 2 * Integer.BYTES;
+    //date, timeslot, location, department, duration, email index
+    private static final int RECORD_SIZE = 4 + 1 + 1 + 1 + 2 + 4;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+    private static final int MAX_EMAIL_LENGTH = 0xffff;
+
+    /**
+     * Not meant to be created, only holds static methods
+     */
+    private EventCalendarSnapshot() {
+    }
+
+    /**
+     * Save every event of a calendar to a snapshot file. The file is
+     * written next to its destination first and then renamed over it, so
+     * a crash never leaves a half written snapshot behind.
+     *
+     * @param calendar calendar to save
+     * @param file     path of the snapshot file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if an email is too long, or an
+     *                                  event's duration does not fit
+     */
+    public static void save(AbstractEventCalendar calendar, Path file)
+            throws IOException {
+        EventCalendarSnapshot.save(calendar, file, 0);
+    }
+
+    /**
+     * Save every event of a calendar to a snapshot file tagged with a
+     * generation number. The file is written next to its destination first
+     * and then renamed over it, so a crash never leaves a half written
+     * snapshot behind.
+     *
+     * @param calendar   calendar to save
+     * @param file       path of the snapshot file
+     * @param generation number stored with the snapshot
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if an email is too long, or an
+     *                                  event's duration does not fit
+     */
+    public static void save(AbstractEventCalendar calendar, Path file,
+                            long generation) throws IOException {
+        Event[] events = calendar.toArray();
+
+        // give every distinct email an index into the string table
+        HashMap<String, Integer> emailIndex = new HashMap<>();
+        byte[][] emails = new byte[events.length][];
+        int[] emailOfEvent = new int[events.length];
+        int stringTableSize = 0;
+        for (int i = 0; i < events.length; i++) {
+            String email = events[i].getContact().getEmail();
+            Integer index = emailIndex.get(email);
+            if (index == null) {
+                index = emailIndex.size();
+                emailIndex.put(email, index);
+                emails[index] = email.getBytes(StandardCharsets.UTF_8);
+                if (emails[index].length > MAX_EMAIL_LENGTH) {
+                    throw new IllegalArgumentException(
+                            "Email too long to save: " + email);
+                }
+                stringTableSize += Short.BYTES + emails[index].length;
+            }
+            emailOfEvent[i] = index;
+        }
+
+        ByteBuffer snapshot = ByteBuffer.allocate(Math.addExact(
+                HEADER_SIZE + stringTableSize + CHECKSUM_SIZE,
+                Math.multiplyExact(RECORD_SIZE, events.length)
+        ));
+        snapshot.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(generation)
+                .putInt(emailIndex.size())
+                .putInt(events.length);
+        for (int i = 0; i < emailIndex.size(); i++) {
+            snapshot.putShort((short) emails[i].length).put(emails[i]);
+        }
+        for (int i = 0; i < events.length; i++) {
+            Event event = events[i];
+            if (event.getDuration() < Short.MIN_VALUE ||
+                event.getDuration() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        "Duration out of range to save: " +
+                        event.getDuration());
+            }
+            snapshot.putInt(event.getDate().toPackedInt())
+                    .put((byte) event.getTimeslot().ordinal())
+                    .put((byte) event.getLocation().ordinal())
+                    .put((byte) event.getContact().getDepartment().ordinal())
+                    .putShort((short) event.getDuration())
+                    .putInt(emailOfEvent[i]);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(snapshot.array(), 0, snapshot.position());
+        snapshot.putInt((int) checksum.getValue());
+        snapshot.flip();
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+                tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING
+        );
+    }
+
+    /**
+     * Load a snapshot file into a new calendar
+     *
+     * @param file path of the snapshot file
+     * @return calendar holding the saved events in their saved order
+     * @throws IOException if the file cannot be read, is not a snapshot of
+     *                     a supported version, or is corrupt
+     */
+    public static EventCalendar load(Path file) throws IOException {
+        EventCalendar calendar = new EventCalendar(0);
+        EventCalendarSnapshot.load(file, calendar);
+        return calendar;
+    }
+
+    /**
+     * Load a snapshot file, adding its events to a calendar. Events that
+     * conflict with one already in the calendar are skipped.
+     *
+     * @param file     path of the snapshot file
+     * @param calendar calendar to add the saved events to
+     * @return number of events added
+     * @throws IOException if the file cannot be read, is not a snapshot of
+     *                     a supported version, or is corrupt
+     */
+    public static int load(Path file, AbstractEventCalendar calendar)
+            throws IOException {
+        MappedByteBuffer snapshot = EventCalendarSnapshot.map(file);
+        snapshot.position(GENERATION_POSITION + Long.BYTES);
+        try {
+            String[] emails = new String[snapshot.getInt()];
+            int numEvents = snapshot.getInt();
+            byte[] emailBytes = new byte[MAX_EMAIL_LENGTH];
+            for (int i = 0; i < emails.length; i++) {
+                int length = Short.toUnsignedInt(snapshot.getShort());
+                snapshot.get(emailBytes, 0, length);
+                emails[i] = new String(emailBytes, 0, length,
+                                       StandardCharsets.UTF_8
+                );
+            }
+            if (snapshot.remaining() !=
+                (long) numEvents * RECORD_SIZE + CHECKSUM_SIZE) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+
+            Timeslot[] timeslots = Timeslot.values();
+            Location[] locations = Location.values();
+            Department[] departments = Department.values();
+            // contacts never change, so events with the same department
+            // and email share one, by email index then department ordinal
+            Contact[][] contacts = new Contact[emails.length][];
+            Event[] events = new Event[numEvents];
+            for (int i = 0; i < numEvents; i++) {
+                Date date = Date.ofPackedInt(snapshot.getInt());
+                Timeslot timeslot = timeslots[snapshot.get()];
+                Location location = locations[snapshot.get()];
+                int department = snapshot.get();
+                int duration = snapshot.getShort();
+                int email = snapshot.getInt();
+
+                if (contacts[email] == null) {
+                    contacts[email] = new Contact[departments.length];
+                }
+                Contact contact = contacts[email][department];
+                if (contact == null) {
+                    contact = new Contact(departments[department],
+                                          emails[email]
+                    );
+                    contacts[email][department] = contact;
+                }
+                events[i] = new Event(date, timeslot, location, contact,
+                                      duration
+                );
+            }
+
+            int numAdded = 0;
+            for (boolean added : calendar.addAll(events)) {
+                if (added) {
+                    numAdded++;
+                }
+            }
+            return numAdded;
+        }
+        catch (RuntimeException e) {
+            // an ordinal or index out of range slipped past the checksum
+            throw new IOException("Corrupt snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Read the generation number a snapshot file was saved with
+     *
+     * @param file path of the snapshot file
+     * @return generation number of the snapshot
+     * @throws IOException if the file cannot be read, is not a snapshot of
+     *                     a supported version, or is corrupt
+     */
+    public static long generation(Path file) throws IOException {
+        return EventCalendarSnapshot.map(file).getLong(GENERATION_POSITION);
+    }
+
+    /**
+     * Map a snapshot file and check its magic number, version and checksum
+     *
+     * @param file path of the snapshot file
+     * @return the whole file, mapped read-only
+     * @throws IOException if the file cannot be read, is not a snapshot of
+     *                     a supported version, or is corrupt
+     */
+    private static MappedByteBuffer map(Path file) throws IOException {
+        MappedByteBuffer snapshot;
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() < HEADER_SIZE + CHECKSUM_SIZE ||
+                channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an event calendar snapshot: " +
+                                      file);
+            }
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                   channel.size()
+            );
+        }
+
+        if (snapshot.getInt(0) != MAGIC) {
+            throw new IOException("Not an event calendar snapshot: " + file);
+        }
+        int version = snapshot.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version +
+                                  ": " + file);
+        }
+        int checksumPosition = snapshot.limit() - CHECKSUM_SIZE;
+        CRC32C checksum = new CRC32C();
+        checksum.update(snapshot.slice(0, checksumPosition));
+        if ((int) checksum.getValue() != snapshot.getInt(checksumPosition)) {
+            throw new IOException("Corrupt snapshot: " + file);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Unit tests for saving and loading snapshots
+     *
+     * @param args unused, does not take command line arguments
+     * @throws IOException if the snapshot files cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("event-snapshot");
+        Path file = directory.resolve("calendar.snapshot");
+
+        // an empty calendar round trips, with its generation
+        EventCalendarSnapshot.save(new EventCalendar(), file, 7);
+        assert EventCalendarSnapshot.load(file).getNumEvents() == 0;
+        assert EventCalendarSnapshot.generation(file) == 7;
+
+        // events come back equal and in the order they were added
+        EventCalendar calendar = new EventCalendar();
+        int numEvents = 2000;
+        for (int i = 0; i < numEvents; i++) {
+            calendar.add(new Event(
+                    Date.of(2024, 1, 1).plusDays(i / 18),
+                    Timeslot.values()[i % 3],
+                    Location.values()[i / 3 % 6],
+                    new Contact(Department.values()[i % 5],
+                                "dept" + i % 7 + "@rutgers.edu"
+                    ),
+                    30 + i % 91
+            ));
+        }
+        EventCalendarSnapshot.save(calendar, file);
+        // 7 emails, each stored once
+        assert Files.size(file) ==
+               HEADER_SIZE + 7 * (Short.BYTES + "dept0@rutgers.edu".length()) +
+               numEvents * RECORD_SIZE + CHECKSUM_SIZE;
+
+        EventCalendar loaded = EventCalendarSnapshot.load(file);
+        Event[] saved = calendar.toArray();
+        Event[] restored = loaded.toArray();
+        assert restored.length == numEvents;
+        for (int i = 0; i < numEvents; i++) {
+            assert restored[i].equals(saved[i]);
+            assert restored[i].toString().equals(saved[i].toString());
+        }
+        StringBuilder savedByCampus = new StringBuilder();
+        StringBuilder loadedByCampus = new StringBuilder();
+        calendar.printByCampus(savedByCampus);
+        loaded.printByCampus(loadedByCampus);
+        assert savedByCampus.toString().equals(loadedByCampus.toString());
+
+        // events already on the calendar are skipped
+        EventCalendar partial = new EventCalendar();
+        partial.add(saved[0]);
+        assert EventCalendarSnapshot.load(file, partial) == numEvents - 1;
+        assert partial.getNumEvents() == numEvents;
+
+        // a flipped bit is caught by the checksum
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[HEADER_SIZE + 100] ^= 1;
+        Files.write(file, bytes);
+        boolean rejected = false;
+        try {
+            EventCalendarSnapshot.load(file);
+        }
+        catch (IOException e) {
+            rejected = true;
+        }
+        assert rejected;
+
+        // other versions are rejected
+        bytes[HEADER_SIZE + 100] ^= 1;
+        bytes[Integer.BYTES + 3] = VERSION + 1;
+        Files.write(file, bytes);
+        rejected = false;
+        try {
+            EventCalendarSnapshot.load(file);
+        }
+        catch (IOException e) {
+            rejected = e.getMessage().startsWith("Unsupported");
+        }
+        assert rejected;
+
+        Files.delete(file);
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,716 @@
+package scheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal that makes the changes to an EventCalendar durable.
+ * Every successful add or remove made through the journal is appended as
+ * a small binary record, and commit() forces the records to disk. When
+ * several threads commit at once one fsync covers all of them. Opening a
+ * journal rebuilds the calendar by loading the last snapshot and replaying
+ * the records written after it. Once enough records pile up the calendar
+ * is written to a new EventCalendarSnapshot and the journal starts over, so
+ * replaying stays fast.
+ */
+public class EventJournal implements Closeable {
+    static final String JOURNAL_FILE_NAME = "events.journal";
+    static final String SNAPSHOT_FILE_NAME = "events.snapshot";
+    static final int DEFAULT_COMPACTION_THRESHOLD = 1 << 16;
+
+    private static final int JOURNAL_MAGIC = 0x45564a4c; //"EVJL"
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final byte ADD_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    //type, date, timeslot, location, department, duration, email length
+    private static final int ADD_RECORD_FIXED_SIZE =
+            1 + 4 + 1 + 1 + 1 + 2 + 2;
+    //type, date, timeslot, location
+    private static final int REMOVE_RECORD_SIZE = 1 + 4 + 1 + 1;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+    private static final int MAX_EMAIL_LENGTH = 0xffff;
+    private static final int INITIAL_PENDING_CAPACITY = 1 << 12;
+
+    private final Path directory; //holds the journal and snapshot files
+    private final AbstractEventCalendar eventCalendar; //calendar kept durable
+    private final int compactionThreshold; //records before a new snapshot
+    private final FileChannel journalChannel; //appends to the journal file
+    private final CRC32C checksum = new CRC32C();
+
+    //guards the calendar changes and the records not yet written
+    private final ReentrantLock appendLock = new ReentrantLock();
+    //held by the one thread forcing the journal to disk
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private ByteBuffer pending; //records not yet written to the journal
+    private long generation; //bumped by every compaction
+    private long numAppended; //records appended since the journal opened
+    private volatile long numSynced; //records known to be on disk
+    private int numRecordsInJournal; //records since the last snapshot
+
+    /**
+     * Create a journal appending to an already replayed journal file
+     *
+     * @param directory           directory holding the journal files
+     * @param eventCalendar       calendar the journal keeps durable
+     * @param compactionThreshold records to write before compacting
+     * @param journalChannel      channel positioned at the journal's end
+     * @param generation          generation of the journal file
+     * @param numRecordsInJournal records already in the journal file
+     */
+    private EventJournal(
+            Path directory,
+            AbstractEventCalendar eventCalendar,
+            int compactionThreshold,
+            FileChannel journalChannel,
+            long generation,
+            int numRecordsInJournal
+    ) {
+        this.directory = directory;
+        this.eventCalendar = eventCalendar;
+        this.compactionThreshold = compactionThreshold;
+        this.journalChannel = journalChannel;
+        this.generation = generation;
+        this.numRecordsInJournal = numRecordsInJournal;
+        this.pending = ByteBuffer.allocate(INITIAL_PENDING_CAPACITY);
+    }
+
+    /**
+     * Open the journal in a directory, replaying it into the calendar
+     *
+     * @param directory     directory holding the journal files, created if
+     *                      missing
+     * @param eventCalendar calendar to rebuild and keep durable
+     * @return journal appending to the directory's journal file
+     * @throws IOException if the journal files cannot be read or written
+     */
+    public static EventJournal open(
+            Path directory, AbstractEventCalendar eventCalendar
+    ) throws IOException {
+        return EventJournal.open(directory, eventCalendar,
+                                 DEFAULT_COMPACTION_THRESHOLD
+        );
+    }
+
+    /**
+     * Open the journal in a directory, replaying it into the calendar
+     *
+     * @param directory           directory holding the journal files,
+     *                            created if missing
+     * @param eventCalendar       calendar to rebuild and keep durable
+     * @param compactionThreshold number of journal records after which the
+     *                            calendar is compacted into a snapshot
+     * @return journal appending to the directory's journal file
+     * @throws IOException if the journal files cannot be read or written
+     */
+    public static EventJournal open(
+            Path directory, AbstractEventCalendar eventCalendar,
+            int compactionThreshold
+    ) throws IOException {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid compaction threshold: " + compactionThreshold);
+        }
+        Files.createDirectories(directory);
+
+        long snapshotGeneration = 0;
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE_NAME);
+        if (Files.exists(snapshotFile)) {
+            snapshotGeneration = EventCalendarSnapshot.generation(snapshotFile);
+            EventCalendarSnapshot.load(snapshotFile, eventCalendar);
+        }
+
+        Path journalFile = directory.resolve(JOURNAL_FILE_NAME);
+        ByteBuffer journal = ByteBuffer.wrap(
+                Files.exists(journalFile) ? Files.readAllBytes(journalFile)
+                                          : new byte[0]);
+        FileChannel channel = FileChannel.open(
+                journalFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE
+        );
+        try {
+            int numRecords = 0;
+            long end = HEADER_SIZE;
+            if (journal.remaining() >= HEADER_SIZE &&
+                readHeader(journal, JOURNAL_MAGIC) == snapshotGeneration) {
+                // a torn record at the end was never committed, drop it
+                numRecords = replay(journal, eventCalendar);
+                end = journal.position();
+            }
+            else {
+                // new, or already folded into the snapshot
+                channel.truncate(0);
+                channel.position(0);
+                writeHeader(channel, JOURNAL_MAGIC, snapshotGeneration);
+            }
+            channel.truncate(end);
+            channel.position(end);
+            channel.force(false);
+
+            return new EventJournal(directory, eventCalendar,
+                                    compactionThreshold, channel,
+                                    snapshotGeneration, numRecords
+            );
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the calendar this journal keeps durable
+     *
+     * @return the journaled calendar
+     */
+    public AbstractEventCalendar getEventCalendar() {
+        return this.eventCalendar;
+    }
+
+    /**
+     * Add an event to the calendar unless its slot is taken, recording the
+     * addition. The record is durable once commit() returns.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if its slot was taken
+     * @throws IllegalArgumentException if the contact email is too long or
+     *                                  the duration out of range to record
+     */
+    public boolean add(Event event) {
+        byte[] email = event.getContact().getEmail()
+                            .getBytes(StandardCharsets.UTF_8);
+        if (email.length > MAX_EMAIL_LENGTH) {
+            throw new IllegalArgumentException("Email too long to record");
+        }
+        if (event.getDuration() < Short.MIN_VALUE ||
+            event.getDuration() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Duration out of range to record: " + event.getDuration());
+        }
+
+        this.appendLock.lock();
+        try {
+            if (!this.eventCalendar.addIfAbsent(event)) {
+                return false;
+            }
+            this.putAddRecord(event, email);
+            this.numAppended++;
+            return true;
+        }
+        finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the event at an event's date, time slot and location from the
+     * calendar, recording the removal. The record is durable once commit()
+     * returns.
+     *
+     * @param event event at the date, time slot and location to free
+     * @return true if an event was removed, false if there was none
+     */
+    public boolean remove(Event event) {
+        this.appendLock.lock();
+        try {
+            if (!this.eventCalendar.remove(event)) {
+                return false;
+            }
+            int start = this.reserve(REMOVE_RECORD_SIZE + CHECKSUM_SIZE);
+            this.pending.put(REMOVE_RECORD);
+            putKey(this.pending, event);
+            this.putChecksum(start);
+            this.numAppended++;
+            return true;
+        }
+        finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Make room for a record in the pending buffer, growing it if needed
+     *
+     * @param recordSize size of the record in bytes
+     * @return position the record starts at
+     */
+    private int reserve(int recordSize) {
+        if (this.pending.remaining() < recordSize) {
+            int newCapacity = Math.max(
+                    this.pending.capacity() * EventCalendar.GROWTH_FACTOR,
+                    this.pending.position() + recordSize
+            );
+            ByteBuffer grown = ByteBuffer.allocate(newCapacity);
+            this.pending.flip();
+            grown.put(this.pending);
+            this.pending = grown;
+        }
+        return this.pending.position();
+    }
+
+    /**
+     * Put the record adding an event into the pending buffer
+     *
+     * @param event event the record adds
+     * @param email UTF-8 bytes of the event's contact email
+     */
+    private void putAddRecord(Event event, byte[] email) {
+        int start = this.reserve(
+                ADD_RECORD_FIXED_SIZE + email.length + CHECKSUM_SIZE);
+        this.pending.put(ADD_RECORD);
+        putKey(this.pending, event);
+        this.pending.put((byte) event.getContact().getDepartment().ordinal())
+                    .putShort((short) event.getDuration())
+                    .putShort((short) email.length)
+                    .put(email);
+        this.putChecksum(start);
+    }
+
+    /**
+     * Finish the record starting at start with the checksum of its bytes
+     *
+     * @param start position the record starts at in the pending buffer
+     */
+    private void putChecksum(int start) {
+        this.checksum.reset();
+        this.checksum.update(this.pending.array(), start,
+                             this.pending.position() - start
+        );
+        this.pending.putInt((int) this.checksum.getValue());
+    }
+
+    /**
+     * Write the records appended so far to disk and wait until they are
+     * durable. A thread that finds its records already forced by another
+     * thread's commit returns without forcing again.
+     *
+     * @throws IOException if writing or forcing the journal fails
+     */
+    public void commit() throws IOException {
+        long target;
+        this.appendLock.lock();
+        try {
+            target = this.numAppended;
+        }
+        finally {
+            this.appendLock.unlock();
+        }
+        if (this.numSynced >= target) {
+            return;
+        }
+
+        this.syncLock.lock();
+        try {
+            if (this.numSynced >= target) {
+                return;
+            }
+            long numWritten;
+            this.appendLock.lock();
+            try {
+                numWritten = this.writePending();
+            }
+            finally {
+                this.appendLock.unlock();
+            }
+            this.journalChannel.force(false);
+            this.numSynced = numWritten;
+
+            if (this.numRecordsInJournal >= this.compactionThreshold) {
+                this.compact();
+            }
+        }
+        finally {
+            this.syncLock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending records to the journal file, holding appendLock
+     *
+     * @return number of records appended so far, all of them now written
+     * @throws IOException if writing the journal fails
+     */
+    private long writePending() throws IOException {
+        this.writePendingTo(this.journalChannel);
+        this.numRecordsInJournal += (int) (this.numAppended - this.numSynced);
+        return this.numAppended;
+    }
+
+    /**
+     * Save the calendar to a new EventCalendarSnapshot and start a new
+     * journal. The snapshot replaces the old one in a single rename, and
+     * the new generation number tells a later open that the journal left
+     * behind by a crash before it was truncated is already in the snapshot.
+     *
+     * @throws IOException if writing the snapshot or journal fails
+     */
+    public void compact() throws IOException {
+        this.syncLock.lock();
+        this.appendLock.lock();
+        try {
+            this.writePending();
+            this.numSynced = this.numAppended;
+            long nextGeneration = this.generation + 1;
+
+            EventCalendarSnapshot.save(
+                    this.eventCalendar,
+                    this.directory.resolve(SNAPSHOT_FILE_NAME),
+                    nextGeneration
+            );
+
+            this.journalChannel.truncate(0);
+            writeHeader(this.journalChannel, JOURNAL_MAGIC, nextGeneration);
+            this.journalChannel.force(false);
+            this.generation = nextGeneration;
+            this.numRecordsInJournal = 0;
+        }
+        finally {
+            this.appendLock.unlock();
+            this.syncLock.unlock();
+        }
+    }
+
+    /**
+     * Write the whole pending buffer to a channel and clear it
+     *
+     * @param channel channel to write to
+     * @throws IOException if writing fails
+     */
+    private void writePendingTo(FileChannel channel) throws IOException {
+        this.pending.flip();
+        while (this.pending.hasRemaining()) {
+            channel.write(this.pending);
+        }
+        this.pending.clear();
+    }
+
+    /**
+     * Commit the records appended so far and close the journal file
+     *
+     * @throws IOException if writing or closing the journal fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.commit();
+        }
+        finally {
+            this.journalChannel.close();
+        }
+    }
+
+    /**
+     * Write a file header at the channel's position
+     *
+     * @param channel    channel to write to
+     * @param magic      number identifying the kind of file
+     * @param generation generation number of the file
+     * @throws IOException if writing fails
+     */
+    private static void writeHeader(
+            FileChannel channel, int magic, long generation
+    ) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(magic).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Read a file header
+     *
+     * @param file  contents of the file
+     * @param magic number the file has to start with
+     * @return generation number of the file
+     * @throws IOException if the file does not start with a valid header
+     */
+    private static long readHeader(ByteBuffer file, int magic)
+            throws IOException {
+        if (file.remaining() < HEADER_SIZE || file.getInt() != magic) {
+            throw new IOException("Not an event journal file");
+        }
+        return file.getLong();
+    }
+
+    /**
+     * Put the date, time slot and location of an event
+     *
+     * @param buffer buffer to write to
+     * @param event  event whose key to write
+     */
+    private static void putKey(ByteBuffer buffer, Event event) {
+        buffer.putInt(event.getDate().toPackedInt())
+              .put((byte) event.getTimeslot().ordinal())
+              .put((byte) event.getLocation().ordinal());
+    }
+
+    /**
+     * Apply every intact record to the calendar, leaving the buffer
+     * positioned after the last one
+     *
+     * @param records  records to apply
+     * @param calendar calendar to apply them to
+     * @return number of records applied
+     */
+    private static int replay(
+            ByteBuffer records, AbstractEventCalendar calendar
+    ) {
+        CRC32C checksum = new CRC32C();
+        int numRecords = 0;
+        while (records.hasRemaining()) {
+            byte type = records.get(records.position());
+            Event event = readRecord(records, checksum);
+            if (event == null) {
+                break;
+            }
+            if (type == ADD_RECORD) {
+                calendar.addIfAbsent(event);
+            }
+            else {
+                calendar.remove(event);
+            }
+            numRecords++;
+        }
+        return numRecords;
+    }
+
+    /**
+     * Read the record at the buffer's position, moving past it unless it
+     * is torn or corrupt
+     *
+     * @param records  buffer holding the record
+     * @param checksum checksum to verify the record with
+     * @return the event added or removed by the record, null if the record
+     * is torn or corrupt
+     */
+    private static Event readRecord(ByteBuffer records, CRC32C checksum) {
+        int start = records.position();
+        byte type = records.get(start);
+        int recordSize;
+        if (type == REMOVE_RECORD) {
+            recordSize = REMOVE_RECORD_SIZE;
+        }
+        else if (type == ADD_RECORD &&
+                 records.remaining() >= ADD_RECORD_FIXED_SIZE) {
+            recordSize = ADD_RECORD_FIXED_SIZE + Short.toUnsignedInt(
+                    records.getShort(start + ADD_RECORD_FIXED_SIZE - 2));
+        }
+        else {
+            return null;
+        }
+        if (records.remaining() < recordSize + CHECKSUM_SIZE) {
+            return null;
+        }
+        checksum.reset();
+        checksum.update(records.array(), records.arrayOffset() + start,
+                        recordSize
+        );
+        if ((int) checksum.getValue() != records.getInt(start + recordSize)) {
+            return null;
+        }
+
+        try {
+            records.position(start + 1);
+            Date date = Date.ofPackedInt(records.getInt());
+            Timeslot timeslot = Timeslot.values()[records.get()];
+            Location location = Location.values()[records.get()];
+            // a removal only needs the date, time slot and location
+            Contact contact = new Contact(Department.CS, "");
+            int duration = 0;
+            if (type == ADD_RECORD) {
+                Department department = Department.values()[records.get()];
+                duration = records.getShort();
+                byte[] email = new byte[Short.toUnsignedInt(
+                        records.getShort())];
+                records.get(email);
+                contact = new Contact(department, new String(
+                        email, StandardCharsets.UTF_8));
+            }
+            records.position(start + recordSize + CHECKSUM_SIZE);
+            return new Event(date, timeslot, location, contact, duration);
+        }
+        catch (RuntimeException e) {
+            records.position(start);
+            return null;
+        }
+    }
+
+    /**
+     * Print the calendar the way the P command does
+     *
+     * @param calendar calendar to print
+     * @return every event of the calendar, one per line
+     */
+    private static String printed(AbstractEventCalendar calendar) {
+        StringBuilder output = new StringBuilder();
+        calendar.print(output);
+        return output.toString();
+    }
+
+    /**
+     * Unit tests for journaling, replay and compaction
+     *
+     * @param args unused, does not take command line arguments
+     * @throws Exception if the journal files cannot be used
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("event-journal");
+        Path journalFile = directory.resolve(JOURNAL_FILE_NAME);
+        Event[] events = new Event[40];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(
+                    Date.of(2024, 1, 1).plusDays(i / 3),
+                    Timeslot.values()[i % 3],
+                    Location.values()[i % 6],
+                    new Contact(Department.values()[i % 5],
+                                "contact" + i + "@rutgers.edu"
+                    ),
+                    30 + i
+            );
+        }
+
+        // replay gives back the same events in the same order
+        EventCalendar calendar = new EventCalendar();
+        try (EventJournal journal = EventJournal.open(directory, calendar)) {
+            for (Event event : events) {
+                assert journal.add(event);
+            }
+            assert !journal.add(events[0]);
+            assert journal.remove(events[5]);
+            assert !journal.remove(events[5]);
+            journal.commit();
+        }
+        EventCalendar replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        assert replayed.getNumEvents() == events.length - 1;
+        assert printed(replayed).equals(printed(calendar));
+        assert replayed.toArray()[0].getContact().getEmail()
+                                     .equals("contact0@rutgers.edu");
+
+        // durations wider than a byte come back whole
+        Event longEvent = new Event(Date.of(2024, 6, 2), Timeslot.EVENING,
+                                    Location.AB2225,
+                                    new Contact(Department.EE,
+                                                "ee@rutgers.edu"
+                                    ), 300
+        );
+        try (EventJournal journal = EventJournal.open(directory, calendar)) {
+            assert journal.add(longEvent);
+            try {
+                journal.add(new Event(Date.of(2024, 6, 3), Timeslot.EVENING,
+                                      Location.AB2225,
+                                      new Contact(Department.EE,
+                                                  "ee@rutgers.edu"
+                                      ), Short.MAX_VALUE + 1
+                ));
+                assert false;
+            }
+            catch (IllegalArgumentException e) {
+                // out of range durations are rejected before adding
+            }
+        }
+        replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        Event[] replayedEvents = replayed.toArray();
+        assert replayedEvents[replayedEvents.length - 1].getDuration() == 300;
+        try (EventJournal journal = EventJournal.open(directory, calendar)) {
+            assert journal.remove(longEvent);
+        }
+
+        // a record torn by a crash is dropped and cut off
+        long intactSize = Files.size(journalFile);
+        Files.write(journalFile, new byte[]{ADD_RECORD, 1, 2},
+                    StandardOpenOption.APPEND
+        );
+        replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        assert printed(replayed).equals(printed(calendar));
+        assert Files.size(journalFile) == intactSize;
+
+        // compaction keeps the journal short and the state the same
+        calendar = new EventCalendar();
+        try (EventJournal journal = EventJournal.open(directory, calendar,
+                                                      8
+        )) {
+            for (int i = 0; i < 100; i++) {
+                Event event = events[i % events.length];
+                if (!journal.add(event)) {
+                    assert journal.remove(event);
+                }
+                journal.commit();
+            }
+            assert journal.numRecordsInJournal < 8;
+        }
+        assert Files.exists(directory.resolve(SNAPSHOT_FILE_NAME));
+        // the snapshot is an ordinary EventCalendarSnapshot
+        assert EventCalendarSnapshot.generation(
+                directory.resolve(SNAPSHOT_FILE_NAME)) > 0;
+        replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        assert printed(replayed).equals(printed(calendar));
+
+        // a journal already folded into the snapshot is not replayed again
+        byte[] folded = Files.readAllBytes(journalFile);
+        try (EventJournal journal = EventJournal.open(directory,
+                                                      new EventCalendar()
+        )) {
+            journal.add(new Event(Date.of(2024, 6, 1), Timeslot.MORNING,
+                                  Location.HLL114,
+                                  new Contact(Department.CS,
+                                              "cs@rutgers.edu"
+                                  ), 60
+            ));
+            journal.compact();
+        }
+        Files.write(journalFile, folded);
+        replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        assert replayed.getNumEvents() == calendar.getNumEvents() + 1;
+        assert Files.size(journalFile) == HEADER_SIZE;
+
+        // threads committing at once all end up durable
+        for (Path file : new Path[]{journalFile,
+                                    directory.resolve(SNAPSHOT_FILE_NAME)}) {
+            Files.delete(file);
+        }
+        try (EventJournal journal = EventJournal.open(
+                directory, new ConcurrentEventCalendar(), 16)) {
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                int first = t * events.length / threads.length;
+                int last = (t + 1) * events.length / threads.length;
+                threads[t] = Thread.ofVirtual().start(() -> {
+                    try {
+                        for (int i = first; i < last; i++) {
+                            journal.add(events[i]);
+                            journal.commit();
+                        }
+                    }
+                    catch (IOException e) {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        replayed = new EventCalendar();
+        EventJournal.open(directory, replayed).close();
+        assert replayed.getNumEvents() == events.length;
+
+        for (Path file : new Path[]{journalFile,
+                                    directory.resolve(SNAPSHOT_FILE_NAME)}) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
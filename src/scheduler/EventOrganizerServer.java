@@ -0,0 +1,309 @@
+package scheduler;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local socket server that lets many clients book into one shared
+ * calendar. Each connected client gets its own EventOrganizer session that
+ * speaks the same A/R/P/PE/PC/PD/Q commands as the command line UI, runs on
+ * its own virtual thread and writes only to its own socket. Sessions share
+ * a ConcurrentEventCalendar, so two clients can never book the same slot.
+ * Sockets are used through NIO channels, which block a virtual thread
+ * without pinning its carrier.
+ */
+public class EventOrganizerServer implements Closeable {
+    private static final int SESSION_BUFFER_SIZE = 1 << 13;
+    //where sessions that end on an unexpected failure are reported
+    private static final System.Logger LOGGER =
+            System.getLogger(EventOrganizerServer.class.getName());
+
+    private final ServerSocketChannel serverChannel; //accepts clients
+    private final AbstractEventCalendar eventCalendar; //shared by every session
+    //journal of the shared calendar, null if changes are not journaled
+    private final EventJournal eventJournal;
+    private final Clock clock; //gives today's date to every session
+    private final ExecutorService sessions; //one virtual thread per session
+    //metrics shared by every session, null if commands are not measured
+    private volatile OrganizerMetrics metrics;
+
+    /**
+     * Create a server listening on the loopback address
+     *
+     * @param port port to listen on, 0 to pick any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public EventOrganizerServer(int port) throws IOException {
+        this(port, new ConcurrentEventCalendar(), Clock.systemDefaultZone());
+    }
+
+    /**
+     * Create a server listening on the loopback address whose sessions
+     * share the given calendar
+     *
+     * @param port          port to listen on, 0 to pick any free port
+     * @param eventCalendar calendar shared by every session, must be safe
+     *                      to use from several threads
+     * @param clock         clock giving today's date for date validation
+     * @throws IOException if the port cannot be bound
+     */
+    public EventOrganizerServer(
+            int port, AbstractEventCalendar eventCalendar, Clock clock
+    ) throws IOException {
+        this(port, eventCalendar, null, clock);
+    }
+
+    /**
+     * Create a server listening on the loopback address whose sessions
+     * share a journaled calendar. Sessions committing at the same time
+     * share one fsync of the journal.
+     *
+     * @param port         port to listen on, 0 to pick any free port
+     * @param eventJournal journal of the calendar shared by every session,
+     *                     the calendar must be safe to use from several
+     *                     threads
+     * @param clock        clock giving today's date for date validation
+     * @throws IOException if the port cannot be bound
+     */
+    public EventOrganizerServer(
+            int port, EventJournal eventJournal, Clock clock
+    ) throws IOException {
+        this(port, eventJournal.getEventCalendar(), eventJournal, clock);
+    }
+
+    /**
+     * Create a server listening on the loopback address
+     *
+     * @param port          port to listen on, 0 to pick any free port
+     * @param eventCalendar calendar shared by every session
+     * @param eventJournal  journal of the calendar, null if not journaled
+     * @param clock         clock giving today's date for date validation
+     * @throws IOException if the port cannot be bound
+     */
+    private EventOrganizerServer(
+            int port, AbstractEventCalendar eventCalendar,
+            EventJournal eventJournal, Clock clock
+    ) throws IOException {
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.eventCalendar = eventCalendar;
+        this.eventJournal = eventJournal;
+        this.clock = clock;
+        this.sessions = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Get the port the server is listening on
+     *
+     * @return local port of the server socket
+     */
+    public int getPort() {
+        return this.serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Get the calendar shared by every session
+     *
+     * @return the shared calendar
+     */
+    public AbstractEventCalendar getEventCalendar() {
+        return this.eventCalendar;
+    }
+
+    /**
+     * Measure the commands of sessions started from now on
+     *
+     * @param metrics metrics shared by the sessions, or null to stop
+     */
+    public void setMetrics(OrganizerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Accept clients until the server is closed, starting a session on a
+     * new virtual thread for each one
+     *
+     * @throws IOException if accepting a connection fails for a reason
+     *                     other than the server being closed
+     */
+    public void serve() throws IOException {
+        while (this.serverChannel.isOpen()) {
+            SocketChannel client;
+            try {
+                client = this.serverChannel.accept();
+            }
+            catch (AsynchronousCloseException e) {
+                return;
+            }
+            this.sessions.execute(() -> this.runSession(client));
+        }
+    }
+
+    /**
+     * Run one client's commands until it sends Q or disconnects. A command
+     * failing unexpectedly only fails that command; anything that ends the
+     * session early is logged, since nobody waits on the session's thread.
+     *
+     * @param client the connected client
+     */
+    private void runSession(SocketChannel client) {
+        try (SocketChannel channel = client;
+             CommandLineReader input = new CommandLineReader(
+                     channel, SESSION_BUFFER_SIZE);
+             Writer output = new BufferedWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(channel),
+                     StandardCharsets.UTF_8
+             ))) {
+            EventOrganizer organizer = this.eventJournal == null
+                    ? new EventOrganizer(this.eventCalendar, output, this.clock)
+                    : new EventOrganizer(this.eventJournal, output, this.clock);
+            organizer.setMetrics(this.metrics);
+            organizer.runSession(input);
+        }
+        catch (IOException e) {
+            // the client went away, nothing left to answer
+        }
+        catch (UncheckedIOException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                       "Session ended, its output or the journal failed", e);
+        }
+        catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR,
+                       "Session ended by an unexpected failure", e);
+        }
+    }
+
+    /**
+     * Stop accepting clients and wait for running sessions to finish
+     *
+     * @throws IOException if closing the server socket fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.serverChannel.close();
+        this.sessions.close();
+    }
+
+    /**
+     * Unit tests running many clients against one server
+     *
+     * @param args unused, does not take command line arguments
+     * @throws Exception if the server or a client fails
+     */
+    public static void main(String[] args) throws Exception {
+        ZoneId zone = ZoneId.systemDefault();
+        Clock clock = Clock.fixed(LocalDate.of(2024, 1, 1)
+                                           .atStartOfDay(zone)
+                                           .toInstant(), zone);
+        AbstractEventCalendar calendar = new ConcurrentEventCalendar();
+        int numClients = 200;
+
+        try (EventOrganizerServer server =
+                     new EventOrganizerServer(0, calendar, clock)) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    server.serve();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // every client books the same slot plus one slot of its own
+            String[] replies = new String[numClients];
+            try (ExecutorService clients =
+                         Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < numClients; i++) {
+                    int client = i;
+                    clients.submit(() -> {
+                        Date date = Date.of(2024, 1, 2).plusDays(client / 18);
+                        Location location =
+                                Location.values()[client / 3 % 6];
+                        Timeslot timeslot = Timeslot.values()[client % 3];
+                        String commands = "A 3/1/2024 morning hll114 cs " +
+                                          "cs@rutgers.edu 60\n" +
+                                          "A " + date + " " + timeslot.name() +
+                                          " " + location.name() +
+                                          " ee ee@rutgers.edu 30\nQ\n";
+                        try (Socket socket = new Socket(
+                                InetAddress.getLoopbackAddress(),
+                                server.getPort())) {
+                            socket.getOutputStream().write(
+                                    commands.getBytes(StandardCharsets.UTF_8));
+                            replies[client] = new String(
+                                    socket.getInputStream().readAllBytes(),
+                                    StandardCharsets.UTF_8);
+                        }
+                        return null;
+                    });
+                }
+            }
+
+            int winners = 0;
+            for (String reply : replies) {
+                assert reply.startsWith("Event Organizer running...");
+                assert reply.endsWith("Event Organizer terminated." +
+                                      System.lineSeparator());
+                if (reply.indexOf("Event added") ==
+                    reply.lastIndexOf("Event added")) {
+                    continue;
+                }
+                winners++;
+            }
+            assert winners == 1;
+            assert calendar.getNumEvents() == numClients + 1;
+        }
+
+        // a command that fails does not end the session
+        AbstractEventCalendar failing = new ConcurrentEventCalendar() {
+            @Override
+            public Event[] query(EventQuery query) {
+                throw new IllegalStateException("query failed");
+            }
+        };
+        try (EventOrganizerServer server =
+                     new EventOrganizerServer(0, failing, clock)) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    server.serve();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                            server.getPort())) {
+                socket.getOutputStream().write(
+                        ("S location=hll114\nA 3/1/2024 morning hll114 cs " +
+                         "cs@rutgers.edu 60\nQ\n")
+                                .getBytes(StandardCharsets.UTF_8));
+                String reply = new String(
+                        socket.getInputStream().readAllBytes(),
+                        StandardCharsets.UTF_8);
+                assert reply.contains(
+                        "Cannot process command: S location=hll114");
+                assert reply.contains("Event added to the calendar.");
+                assert reply.endsWith("Event Organizer terminated." +
+                                      System.lineSeparator());
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Criteria selecting events of a calendar: a range of dates, and sets of
+ * locations, departments and time slots, and a contact email. An event
+ * matches if it meets every criterion that was given. Giving the same kind
+ * of criterion twice keeps only what both allow, for example a campus and
+ * then a building on it.
+ */
+public class EventQuery {
+    private Date from = Date.MIN_VALUE; //first date matched
+    private Date to = Date.MAX_VALUE; //last date matched
+    private EnumSet<Location> locations = EnumSet.allOf(Location.class);
+    private EnumSet<Department> departments =
+            EnumSet.allOf(Department.class);
+    private EnumSet<Timeslot> timeslots = EnumSet.allOf(Timeslot.class);
+    private String email; //lower case, null to match any contact
+    private boolean contradictory; //true if two different emails were given
+
+    /**
+     * Only match events from one date to another
+     *
+     * @param from first date matched
+     * @param to   last date matched
+     * @return this query, for chaining
+     */
+    public EventQuery between(Date from, Date to) {
+        if (from.compareTo(this.from) > 0) {
+            this.from = from;
+        }
+        if (to.compareTo(this.to) < 0) {
+            this.to = to;
+        }
+        return this;
+    }
+
+    /**
+     * Only match events at some locations
+     *
+     * @param locations the locations matched
+     * @return this query, for chaining
+     */
+    public EventQuery at(Location... locations) {
+        this.locations.retainAll(Arrays.asList(locations));
+        return this;
+    }
+
+    /**
+     * Only match events on some campuses. Spaces, underscores and case are
+     * ignored, so "college_avenue" names the College Avenue campus.
+     *
+     * @param campuses names of the campuses matched
+     * @return this query, for chaining
+     */
+    public EventQuery atCampus(String... campuses) {
+        ArrayList<String> names = new ArrayList<>();
+        for (String campus : campuses) {
+            names.add(EventQuery.normalizeCampus(campus));
+        }
+        this.locations.removeIf(location -> !names.contains(
+                EventQuery.normalizeCampus(location.getCampusName())));
+        return this;
+    }
+
+    /**
+     * Check if a name is the name of a campus, the way atCampus reads it
+     *
+     * @param campus the name to check
+     * @return true if some location is on the campus, false otherwise
+     */
+    static boolean isCampus(String campus) {
+        String name = EventQuery.normalizeCampus(campus);
+        for (Location location : Location.values()) {
+            if (EventQuery.normalizeCampus(location.getCampusName())
+                          .equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a campus name without spaces, underscores or case
+     *
+     * @param campus name of the campus
+     * @return the name in lower case without spaces or underscores
+     */
+    private static String normalizeCampus(String campus) {
+        return campus.replace(" ", "").replace("_", "")
+                     .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Only match events of some departments
+     *
+     * @param departments the departments matched
+     * @return this query, for chaining
+     */
+    public EventQuery by(Department... departments) {
+        this.departments.retainAll(Arrays.asList(departments));
+        return this;
+    }
+
+    /**
+     * Only match events in some time slots
+     *
+     * @param timeslots the time slots matched
+     * @return this query, for chaining
+     */
+    public EventQuery in(Timeslot... timeslots) {
+        this.timeslots.retainAll(Arrays.asList(timeslots));
+        return this;
+    }
+
+    /**
+     * Only match events of a contact, ignoring case
+     *
+     * @param email email of the contact
+     * @return this query, for chaining
+     */
+    public EventQuery contact(String email) {
+        String key = EventQuery.emailKey(email);
+        if (this.email != null && !this.email.equals(key)) {
+            this.contradictory = true;
+        }
+        this.email = key;
+        return this;
+    }
+
+    /**
+     * Get the key an email is looked up by
+     *
+     * @param email the email
+     * @return the email in lower case
+     */
+    static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get first date matched
+     *
+     * @return the date, Date.MIN_VALUE if there is no lower bound
+     */
+    public Date getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Get last date matched
+     *
+     * @return the date, Date.MAX_VALUE if there is no upper bound
+     */
+    public Date getTo() {
+        return this.to;
+    }
+
+    /**
+     * Get locations matched
+     *
+     * @return copy of the set of locations
+     */
+    public EnumSet<Location> getLocations() {
+        return EnumSet.copyOf(this.locations);
+    }
+
+    /**
+     * Get departments matched
+     *
+     * @return copy of the set of departments
+     */
+    public EnumSet<Department> getDepartments() {
+        return EnumSet.copyOf(this.departments);
+    }
+
+    /**
+     * Get time slots matched
+     *
+     * @return copy of the set of time slots
+     */
+    public EnumSet<Timeslot> getTimeslots() {
+        return EnumSet.copyOf(this.timeslots);
+    }
+
+    /**
+     * Get contact email matched
+     *
+     * @return the email in lower case, null if any contact matches
+     */
+    public String getEmail() {
+        return this.email;
+    }
+
+    /**
+     * Check if no event can match, without looking at any
+     *
+     * @return true if the criteria contradict each other
+     */
+    public boolean isEmpty() {
+        return this.contradictory || this.from.compareTo(this.to) > 0 ||
+               this.locations.isEmpty() || this.departments.isEmpty() ||
+               this.timeslots.isEmpty();
+    }
+
+    /**
+     * Check if an event meets every criterion
+     *
+     * @param event the event to check
+     * @return true if the event matches, false otherwise
+     */
+    public boolean matches(Event event) {
+        return event.getDate().compareTo(this.from) >= 0 &&
+               event.getDate().compareTo(this.to) <= 0 &&
+               this.locations.contains(event.getLocation()) &&
+               this.departments.contains(
+                       event.getContact().getDepartment()) &&
+               this.timeslots.contains(event.getTimeslot()) &&
+               (this.email == null || this.email.equals(
+                       EventQuery.emailKey(event.getContact().getEmail())));
+    }
+
+    /**
+     * Pick the matching events out of a list by checking every one, for
+     * calendars without indexes to look them up by
+     *
+     * @param events the events to check
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    Event[] select(Event[] events) {
+        ArrayList<Event> matching = new ArrayList<>();
+        if (!this.isEmpty()) {
+            for (Event event : events) {
+                if (this.matches(event)) {
+                    matching.add(event);
+                }
+            }
+        }
+        Event[] selected = matching.toArray(new Event[0]);
+        Arrays.sort(selected, EventCalendar.DATE_COMPARATOR);
+        return selected;
+    }
+
+    /**
+     * Unit tests for matching events and the 'S' command
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        Event event = new Event(new Date(2024, 3, 1), Timeslot.MORNING,
+                                Location.HLL114,
+                                new Contact(Department.CS, "cs@rutgers.edu"),
+                                60
+        );
+        assert new EventQuery().matches(event);
+        assert new EventQuery().atCampus("BUSCH").matches(event);
+        assert new EventQuery().atCampus("college_avenue", "busch")
+                               .matches(event);
+        assert !new EventQuery().atCampus("Livingston").matches(event);
+        assert new EventQuery().contact("CS@Rutgers.edu").matches(event);
+        assert !new EventQuery().between(new Date(2024, 3, 2),
+                                         Date.MAX_VALUE).matches(event);
+        assert new EventQuery().atCampus("Busch").at(Location.BE_AUD)
+                               .isEmpty();
+        assert new EventQuery().between(new Date(2024, 3, 2),
+                                        new Date(2024, 3, 1)).isEmpty();
+        assert EventQuery.isCampus("College Avenue");
+        assert !EventQuery.isCampus("Cook");
+
+        StringBuilder output = new StringBuilder();
+        EventOrganizer organizer = new EventOrganizer(
+                output, WorkloadGenerator.CLOCK);
+        organizer.processCommand("A 3/1/2024 morning hll114 cs " +
+                                 "cs@rutgers.edu 60");
+        organizer.processCommand("A 3/2/2024 afternoon be_aud ee " +
+                                 "ee@rutgers.edu 60");
+        output.setLength(0);
+        organizer.processCommand("S campus=busch,livingston " +
+                                 "timeslot=morning,evening");
+        String newLine = System.lineSeparator();
+        assert output.toString().equals(
+                "* Events matching query *" + newLine + event + newLine +
+                "* end of query results *" + newLine);
+        output.setLength(0);
+        organizer.processCommand("S from=3/2/2024 department=cs");
+        assert output.toString().equals(
+                "No events match the query!" + newLine);
+        output.setLength(0);
+        organizer.processCommand("S location=cook");
+        assert output.toString().equals("Invalid location!" + newLine);
+        output.setLength(0);
+        organizer.processCommand("S size=2");
+        assert output.toString().equals(
+                "Invalid query term: size=2" + newLine);
+    }
+}
@@ -0,0 +1,159 @@
+package scheduler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram of latencies in nanoseconds with buckets on a log-linear scale,
+ * like an HDR histogram. Values below 2 * SUB_BUCKETS each get their own
+ * bucket. Above that, every power of two is split into SUB_BUCKETS equal
+ * buckets, so a percentile is off by at most 1 / SUB_BUCKETS of its value
+ * however large it is. Recording only increments one counter and can be
+ * done from several threads at once.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //largest shift of a value, for values of all 63 bits
+    private static final int MAX_SHIFT = Long.SIZE - 1 - (SUB_BUCKET_BITS + 1);
+    private static final int NUM_BUCKETS = (MAX_SHIFT + 2) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Get the bucket a value is counted in
+     *
+     * @param value the value, not negative
+     * @return index of the bucket
+     */
+    static int bucketOf(long value) {
+        int bitLength = Long.SIZE - Long.numberOfLeadingZeros(value);
+        int shift = Math.max(0, bitLength - (SUB_BUCKET_BITS + 1));
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the largest value counted in a bucket
+     *
+     * @param bucket index of the bucket
+     * @return the largest value of the bucket
+     */
+    static long highestValueOf(int bucket) {
+        int shift = Math.max(0, (bucket >>> SUB_BUCKET_BITS) - 1);
+        long subBucket = bucket - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Count one latency
+     *
+     * @param nanos the latency, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        this.counts.incrementAndGet(LatencyHistogram.bucketOf(value));
+        this.max.accumulate(value);
+    }
+
+    /**
+     * Get number of latencies counted
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the largest latency counted, exactly
+     *
+     * @return the largest latency, 0 if none was counted
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the latency below which a share of the latencies fall, by the
+     * nearest rank
+     *
+     * @param percentile share of the latencies, from 0 to 100
+     * @return the largest value of the bucket holding that rank, never more
+     * than the largest latency, 0 if none was counted
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[NUM_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueOf(i),
+                                this.getMax()
+                );
+            }
+        }
+        return this.getMax();
+    }
+
+    /**
+     * Forget every latency counted
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.max.reset();
+    }
+
+    /**
+     * Unit tests for the buckets and percentiles
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        // buckets are contiguous and each holds the values it should
+        for (long value = 0; value < 1 << 16; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assert value <= LatencyHistogram.highestValueOf(bucket);
+            assert bucket == 0 ||
+                   value > LatencyHistogram.highestValueOf(bucket - 1);
+        }
+        assert LatencyHistogram.bucketOf(Long.MAX_VALUE) == NUM_BUCKETS - 1;
+        assert LatencyHistogram.highestValueOf(NUM_BUCKETS - 1) ==
+               Long.MAX_VALUE;
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assert histogram.percentile(50) == 0 && histogram.getCount() == 0;
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        assert histogram.getCount() == 1001;
+        assert histogram.getMax() == 1_000_000;
+        assert histogram.percentile(100) == 1_000_000;
+        // within a sub-bucket of the exact percentiles
+        long median = histogram.percentile(50);
+        assert median >= 500_000 && median < 500_000 * 17 / 16;
+        long p99 = histogram.percentile(99);
+        assert p99 >= 990_000 && p99 <= 1_000_000;
+        assert histogram.percentile(0) == 0;
+
+        histogram.reset();
+        assert histogram.getCount() == 0 && histogram.getMax() == 0;
+    }
+}
@@ -35,12 +35,26 @@ public enum Location {
      * @return true if the location string is a valid building name, false otherwise.
      */
     public static boolean isValidLocation(String givenUserLocation) {
-        for (Location location : values()) {
-            if (location.name().equalsIgnoreCase(givenUserLocation)) {
-                return true;
-            }
-        }
-        return false;
+        return LOOKUP.find(givenUserLocation) != null;
+    }
+
+    //finds a location by name ignoring case
+    static final EnumLookup<Location> LOOKUP = new EnumLookup<>(values());
+
+    /**
+     * Append the string representation of location to the given buffer
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        return output.append('@')
+                     .append(this.name())
+                     .append(" (")
+                     .append(this.buildingName)
+                     .append(", ")
+                     .append(this.campusName)
+                     .append(')');
     }
 
     /**
@@ -49,7 +63,7 @@ public enum Location {
      * @return building name concatenated with campus name
      */
     public String toString() {
-        return "@" + this.name() + " (" + this.buildingName + ", " + this.campusName + ")";
+        return this.appendTo(new StringBuilder()).toString();
     }
 
     /**
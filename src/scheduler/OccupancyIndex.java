@@ -0,0 +1,299 @@
+package scheduler;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap of the booked time slots of every Location. Each location has a
+ * long[] with one bit per day and Timeslot, set while an event is booked
+ * there, so asking whether a room is free, which rooms are free, or when a
+ * room is next free only takes a few bitwise operations. The bitmaps start
+ * at the first day ever booked, rounded down to DAYS_PER_BLOCK days, and
+ * grow in either direction as needed. An index can also cover a single
+ * location, for a caller keeping one index per location.
+ */
+public class OccupancyIndex {
+    static final int NUM_TIMESLOTS = Timeslot.values().length;
+    //days covered by NUM_TIMESLOTS words, so blocks start on a word
+    static final int DAYS_PER_BLOCK = Long.SIZE;
+    private static final int WORD_SHIFT = 6;
+    private static final int NO_DAYS = Integer.MIN_VALUE;
+
+    //per location from firstLocation on, one bit per slot
+    private final long[][] bits;
+    private final int firstLocation; //ordinal of the location of bits[0]
+    private int baseDay = NO_DAYS; //epoch day of the first bit
+
+    /**
+     * Create an index of every location with every slot free
+     */
+    public OccupancyIndex() {
+        this(0, Location.values().length);
+    }
+
+    /**
+     * Create an index of a range of locations with every slot free
+     *
+     * @param firstLocation ordinal of the first location covered
+     * @param numLocations  number of locations covered
+     */
+    private OccupancyIndex(int firstLocation, int numLocations) {
+        this.bits = new long[numLocations][0];
+        this.firstLocation = firstLocation;
+    }
+
+    /**
+     * Create an index of one location with every slot free. Only that
+     * location's ordinal may be passed to it.
+     *
+     * @param location the location covered
+     * @return index holding a single bitmap
+     */
+    static OccupancyIndex of(Location location) {
+        return new OccupancyIndex(location.ordinal(), 1);
+    }
+
+    /**
+     * Get the bit of a day and time slot
+     *
+     * @param epochDay day counted from 1970-01-01
+     * @param timeslot ordinal of the time slot
+     * @return bit number, negative if the day is before the first bit
+     */
+    private long bitOf(int epochDay, int timeslot) {
+        return ((long) epochDay - this.baseDay) * NUM_TIMESLOTS + timeslot;
+    }
+
+    /**
+     * Make sure the bitmaps cover a day, moving the first bit back or
+     * growing the bitmaps if needed
+     *
+     * @param epochDay day counted from 1970-01-01
+     */
+    private void cover(int epochDay) {
+        int blockStart = Math.floorDiv(epochDay, DAYS_PER_BLOCK) *
+                         DAYS_PER_BLOCK;
+        if (this.baseDay == NO_DAYS) {
+            this.baseDay = blockStart;
+        }
+        int wordsBefore = 0;
+        if (blockStart < this.baseDay) {
+            wordsBefore = Math.toIntExact(
+                    ((long) this.baseDay - blockStart) / DAYS_PER_BLOCK *
+                    NUM_TIMESLOTS);
+            this.baseDay = blockStart;
+        }
+        long wordsNeeded =
+                (this.bitOf(blockStart, 0) >>> WORD_SHIFT) + NUM_TIMESLOTS;
+        int numWords = this.bits[0].length;
+        if (wordsBefore == 0 && wordsNeeded <= numWords) {
+            return;
+        }
+        int newNumWords = Math.toIntExact(Math.max(
+                wordsNeeded,
+                (long) numWords * EventCalendar.GROWTH_FACTOR + wordsBefore
+        ));
+        for (int row = 0; row < this.bits.length; row++) {
+            long[] grown = new long[newNumWords];
+            System.arraycopy(this.bits[row], 0, grown, wordsBefore,
+                             numWords
+            );
+            this.bits[row] = grown;
+        }
+    }
+
+    /**
+     * Mark a time slot of a location as booked
+     *
+     * @param epochDay day counted from 1970-01-01
+     * @param timeslot ordinal of the time slot
+     * @param location ordinal of the location
+     */
+    public void occupy(int epochDay, int timeslot, int location) {
+        this.cover(epochDay);
+        long bit = this.bitOf(epochDay, timeslot);
+        this.bits[location - this.firstLocation][(int) (bit >>> WORD_SHIFT)] |=
+                1L << bit;
+    }
+
+    /**
+     * Mark a time slot of a location as free
+     *
+     * @param epochDay day counted from 1970-01-01
+     * @param timeslot ordinal of the time slot
+     * @param location ordinal of the location
+     */
+    public void free(int epochDay, int timeslot, int location) {
+        long bit = this.bitOf(epochDay, timeslot);
+        long[] words = this.bits[location - this.firstLocation];
+        if (this.baseDay != NO_DAYS && bit >= 0 &&
+            (bit >>> WORD_SHIFT) < words.length) {
+            words[(int) (bit >>> WORD_SHIFT)] &= ~(1L << bit);
+        }
+    }
+
+    /**
+     * Mark the time slot of an event as booked
+     *
+     * @param event the booked event
+     */
+    public void occupy(Event event) {
+        this.occupy(event.getDate().toEpochDay(),
+                    event.getTimeslot().ordinal(),
+                    event.getLocation().ordinal()
+        );
+    }
+
+    /**
+     * Mark the time slot of an event as free
+     *
+     * @param event the removed event
+     */
+    public void free(Event event) {
+        this.free(event.getDate().toEpochDay(),
+                  event.getTimeslot().ordinal(),
+                  event.getLocation().ordinal()
+        );
+    }
+
+    /**
+     * Mark every time slot of every location as free
+     */
+    public void clear() {
+        for (long[] words : this.bits) {
+            Arrays.fill(words, 0);
+        }
+    }
+
+    /**
+     * Check if a time slot of a location is booked
+     *
+     * @param epochDay day counted from 1970-01-01
+     * @param timeslot ordinal of the time slot
+     * @param location ordinal of the location
+     * @return true if the slot is booked, false if it is free
+     */
+    public boolean isOccupied(int epochDay, int timeslot, int location) {
+        long bit = this.bitOf(epochDay, timeslot);
+        long[] words = this.bits[location - this.firstLocation];
+        return this.baseDay != NO_DAYS && bit >= 0 &&
+               (bit >>> WORD_SHIFT) < words.length &&
+               (words[(int) (bit >>> WORD_SHIFT)] & 1L << bit) != 0;
+    }
+
+    /**
+     * Find the locations free in a time slot, testing one bit of each
+     * location's bitmap
+     *
+     * @param epochDay day counted from 1970-01-01
+     * @param timeslot ordinal of the time slot
+     * @return the free locations covered, in ordinal order
+     */
+    public Location[] freeLocations(int epochDay, int timeslot) {
+        Location[] locations = Arrays.copyOfRange(
+                Location.values(), this.firstLocation,
+                this.firstLocation + this.bits.length
+        );
+        int numFree = 0;
+        for (Location location : locations) {
+            if (!this.isOccupied(epochDay, timeslot, location.ordinal())) {
+                locations[numFree++] = location;
+            }
+        }
+        return Arrays.copyOf(locations, numFree);
+    }
+
+    /**
+     * Find the first free time slot of a location at or after a time slot,
+     * skipping whole words of booked slots at a time
+     *
+     * @param epochDay day counted from 1970-01-01 to start from
+     * @param timeslot ordinal of the time slot to start from
+     * @param location ordinal of the location
+     * @return the first free slot, as epoch day * NUM_TIMESLOTS + timeslot
+     */
+    public long nextFree(int epochDay, int timeslot, int location) {
+        long start = (long) epochDay * NUM_TIMESLOTS + timeslot;
+        long bit = this.bitOf(epochDay, timeslot);
+        long[] words = this.bits[location - this.firstLocation];
+        if (this.baseDay == NO_DAYS || bit < 0) {
+            return start;
+        }
+
+        int word = (int) Math.min(bit >>> WORD_SHIFT, words.length);
+        long free = word < words.length ? ~words[word] & -1L << bit : -1L;
+        while (free == 0 && ++word < words.length) {
+            free = ~words[word];
+        }
+        long freeBit = word < words.length
+                       ? ((long) word << WORD_SHIFT) +
+                         Long.numberOfTrailingZeros(free)
+                       : Math.max(bit, (long) words.length << WORD_SHIFT);
+        return start + freeBit - bit;
+    }
+
+    /**
+     * Unit tests for booking and querying slots
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        OccupancyIndex index = new OccupancyIndex();
+        int day = Date.of(2024, 3, 1).toEpochDay();
+        int hill = Location.HLL114.ordinal();
+        int beck = Location.BE_AUD.ordinal();
+        int morning = Timeslot.MORNING.ordinal();
+        int evening = Timeslot.EVENING.ordinal();
+
+        // nothing booked yet
+        assert !index.isOccupied(day, morning, hill);
+        assert index.freeLocations(day, morning).length ==
+               Location.values().length;
+        assert index.nextFree(day, morning, hill) ==
+               (long) day * NUM_TIMESLOTS + morning;
+        index.free(day, morning, hill);
+
+        index.occupy(day, morning, hill);
+        assert index.isOccupied(day, morning, hill);
+        assert !index.isOccupied(day, morning, beck);
+        assert !index.isOccupied(day + 1, morning, hill);
+        assert !index.isOccupied(day - 1000, morning, hill);
+        Location[] free = index.freeLocations(day, morning);
+        assert free.length == Location.values().length - 1;
+        assert free[0] != Location.HLL114;
+
+        // booking a much earlier day moves the first bit back
+        index.occupy(day - 1000, evening, beck);
+        assert index.isOccupied(day - 1000, evening, beck);
+        assert index.isOccupied(day, morning, hill);
+
+        // book hill solid for 200 days, across many words
+        for (int i = 0; i < 200; i++) {
+            for (int slot = 0; slot < NUM_TIMESLOTS; slot++) {
+                index.occupy(day + i, slot, hill);
+            }
+        }
+        assert index.nextFree(day, morning, hill) ==
+               (long) (day + 200) * NUM_TIMESLOTS + morning;
+        index.free(day + 150, evening, hill);
+        assert index.nextFree(day + 10, evening, hill) ==
+               (long) (day + 150) * NUM_TIMESLOTS + evening;
+        assert index.nextFree(day + 5000, morning, hill) ==
+               (long) (day + 5000) * NUM_TIMESLOTS + morning;
+
+        index.clear();
+        assert !index.isOccupied(day, morning, hill);
+        assert index.nextFree(day, morning, hill) ==
+               (long) day * NUM_TIMESLOTS + morning;
+
+        // an index of one location keeps one bitmap
+        OccupancyIndex beckOnly = OccupancyIndex.of(Location.BE_AUD);
+        assert beckOnly.bits.length == 1;
+        beckOnly.occupy(day, morning, beck);
+        beckOnly.occupy(day - 1000, evening, beck);
+        assert beckOnly.isOccupied(day, morning, beck);
+        assert beckOnly.nextFree(day, morning, beck) ==
+               (long) day * NUM_TIMESLOTS + morning + 1;
+        assert beckOnly.freeLocations(day, morning).length == 0;
+        assert beckOnly.freeLocations(day, evening)[0] == Location.BE_AUD;
+    }
+}
@@ -0,0 +1,377 @@
+package scheduler;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A calendar for very large calendars that keeps its events outside the
+ * Java heap. Events are fixed-width records in direct buffers of
+ * CHUNK_SLOTS records each, and the index on date, time slot and location
+ * is an open addressing table of record numbers in another direct buffer.
+ * The heap only holds the table of distinct contact emails, so heap use
+ * and garbage collection pauses do not grow with the number of events.
+ */
+public class OffHeapEventCalendar extends PackedEventCalendar {
+    //record layout: date, timeslot, location, department, duration, email
+    private static final int DATE_OFFSET = 0;
+    private static final int TIMESLOT_OFFSET = 4;
+    private static final int LOCATION_OFFSET = 5;
+    private static final int DEPARTMENT_OFFSET = 6;
+    private static final int DURATION_OFFSET = 8;
+    private static final int EMAIL_OFFSET = 12;
+    private static final int RECORD_SHIFT = 4; //records are 16 bytes
+    static final int CHUNK_SLOTS = 1 << 16; //records per direct buffer
+    private static final int CHUNK_SHIFT = 16;
+
+    //index entries are record number + 1, 0 marks an empty slot
+    private static final int EMPTY = 0;
+    private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final int INITIAL_INDEX_SIZE = 16;
+    //largest index whose int entries fit one direct buffer
+    private static final int MAX_INDEX_SIZE = 1 << 28;
+
+    private ByteBuffer[] chunks; //the records, CHUNK_SLOTS per chunk
+    private int numChunks; //chunks allocated so far
+    private ByteBuffer index; //int per slot, record number + 1 or EMPTY
+    private int indexSize; //number of slots in the index
+
+    /**
+     * Construct OffHeapEventCalendar with no events
+     */
+    public OffHeapEventCalendar() {
+        this.chunks = new ByteBuffer[INITIAL_ARRAY_CAPACITY];
+        this.numChunks = 0;
+        this.indexSize = INITIAL_INDEX_SIZE;
+        this.index = ByteBuffer.allocateDirect(
+                INITIAL_INDEX_SIZE * Integer.BYTES);
+    }
+
+    /**
+     * Get the chunk holding a record
+     *
+     * @param row number of the record
+     * @return direct buffer holding the record
+     */
+    private ByteBuffer chunkOf(int row) {
+        return this.chunks[row >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Get the offset of a record inside its chunk
+     *
+     * @param row number of the record
+     * @return byte offset of the record in its chunk
+     */
+    private static int offsetOf(int row) {
+        return (row & (CHUNK_SLOTS - 1)) << RECORD_SHIFT;
+    }
+
+    @Override
+    int dateAt(int row) {
+        return this.chunkOf(row).getInt(
+                OffHeapEventCalendar.offsetOf(row) + DATE_OFFSET);
+    }
+
+    @Override
+    int timeslotAt(int row) {
+        return this.chunkOf(row).get(
+                OffHeapEventCalendar.offsetOf(row) + TIMESLOT_OFFSET);
+    }
+
+    @Override
+    int locationAt(int row) {
+        return this.chunkOf(row).get(
+                OffHeapEventCalendar.offsetOf(row) + LOCATION_OFFSET);
+    }
+
+    @Override
+    int departmentAt(int row) {
+        return this.chunkOf(row).get(
+                OffHeapEventCalendar.offsetOf(row) + DEPARTMENT_OFFSET);
+    }
+
+    @Override
+    int durationAt(int row) {
+        return this.chunkOf(row).getShort(
+                OffHeapEventCalendar.offsetOf(row) + DURATION_OFFSET);
+    }
+
+    @Override
+    int emailIdAt(int row) {
+        return this.chunkOf(row).getInt(
+                OffHeapEventCalendar.offsetOf(row) + EMAIL_OFFSET);
+    }
+
+    @Override
+    void writeRow(int row, Event event, int emailId) {
+        int offset = OffHeapEventCalendar.offsetOf(row);
+        this.chunkOf(row)
+            .putInt(offset + DATE_OFFSET, event.getDate().toPackedInt())
+            .put(offset + TIMESLOT_OFFSET,
+                 (byte) event.getTimeslot().ordinal())
+            .put(offset + LOCATION_OFFSET,
+                 (byte) event.getLocation().ordinal())
+            .put(offset + DEPARTMENT_OFFSET,
+                 (byte) event.getContact().getDepartment().ordinal())
+            .putShort(offset + DURATION_OFFSET, (short) event.getDuration())
+            .putInt(offset + EMAIL_OFFSET, emailId);
+    }
+
+    @Override
+    void markRemoved(int row) {
+        this.chunkOf(row).put(
+                OffHeapEventCalendar.offsetOf(row) + TIMESLOT_OFFSET,
+                (byte) REMOVED);
+    }
+
+    @Override
+    void copyRow(int from, int to) {
+        this.chunkOf(to).put(OffHeapEventCalendar.offsetOf(to),
+                             this.chunkOf(from),
+                             OffHeapEventCalendar.offsetOf(from),
+                             1 << RECORD_SHIFT
+        );
+    }
+
+    /**
+     * Get the index slot a slot key would like to be stored in
+     *
+     * @param key the slot key
+     * @return preferred slot of the key
+     */
+    private int home(long key) {
+        int shift = Long.numberOfLeadingZeros(this.indexSize - 1);
+        return (int) ((key * HASH_MULTIPLIER) >>> shift);
+    }
+
+    /**
+     * Get the entry of an index slot
+     *
+     * @param slot the index slot
+     * @return record number + 1, or EMPTY
+     */
+    private int entryAt(int slot) {
+        return this.index.getInt(slot * Integer.BYTES);
+    }
+
+    /**
+     * Find the index slot of a slot key, or the empty slot it would go in.
+     * The index only stores record numbers, so keys are read back from the
+     * records while probing.
+     *
+     * @param key the slot key
+     * @return slot of the key, or the empty slot ending its probe
+     */
+    private int indexSlotOf(long key) {
+        int mask = this.indexSize - 1;
+        int slot = this.home(key);
+        while (true) {
+            int entry = this.entryAt(slot);
+            if (entry == EMPTY || this.slotKeyAt(entry - 1) == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    int rowOf(long key) {
+        int entry = this.entryAt(this.indexSlotOf(key));
+        return entry == EMPTY ? NOT_FOUND : entry - 1;
+    }
+
+    @Override
+    void indexRow(long key, int row) {
+        this.index.putInt(this.indexSlotOf(key) * Integer.BYTES, row + 1);
+    }
+
+    /**
+     * Drop the index entry of a slot key, shifting back the entries probed
+     * past it so no probe sequence is broken. The keys of the shifted
+     * entries are read back from their records.
+     *
+     * @param key the slot key
+     */
+    @Override
+    void unindexRow(long key) {
+        int mask = this.indexSize - 1;
+        int hole = this.indexSlotOf(key);
+        if (this.entryAt(hole) == EMPTY) {
+            return;
+        }
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int entry = this.entryAt(slot);
+            if (entry == EMPTY) {
+                break;
+            }
+            int home = this.home(this.slotKeyAt(entry - 1));
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                this.index.putInt(hole * Integer.BYTES, entry);
+                hole = slot;
+            }
+        }
+        this.index.putInt(hole * Integer.BYTES, EMPTY);
+    }
+
+    /**
+     * Make sure the index can take minSize records at most half full,
+     * rebuilding it in a larger direct buffer if needed
+     *
+     * @param minSize number of records the index must be able to hold
+     * @throws IllegalStateException if the index would outgrow one direct
+     *                               buffer
+     */
+    private void ensureIndexCapacity(int minSize) {
+        long tableSize = this.indexSize;
+        while ((long) minSize * 2 > tableSize) {
+            tableSize *= GROWTH_FACTOR;
+        }
+        if (tableSize == this.indexSize) {
+            return;
+        }
+        if (tableSize > MAX_INDEX_SIZE) {
+            throw new IllegalStateException("Calendar is full");
+        }
+        this.indexSize = (int) tableSize;
+        this.index = ByteBuffer.allocateDirect(
+                this.indexSize * Integer.BYTES);
+        for (int row = 0; row < this.getNumRows(); row++) {
+            if (this.timeslotAt(row) != REMOVED) {
+                this.indexRow(this.slotKeyAt(row), row);
+            }
+        }
+    }
+
+    /**
+     * Get number of events the allocated chunks can hold
+     *
+     * @return number of record slots allocated
+     */
+    @Override
+    public int getCapacity() {
+        return this.numChunks * CHUNK_SLOTS;
+    }
+
+    /**
+     * Make sure at least minCapacity events fit without allocating more
+     * chunks or growing the index.
+     *
+     * @param minCapacity number of events the calendar must be able to hold
+     * @throws IllegalStateException if the index would outgrow one direct
+     *                               buffer
+     */
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        this.ensureIndexCapacity(minCapacity);
+        int chunksNeeded = (int) (((long) minCapacity + CHUNK_SLOTS - 1) >>>
+                                  CHUNK_SHIFT);
+        if (chunksNeeded > this.chunks.length) {
+            this.chunks = Arrays.copyOf(
+                    this.chunks,
+                    Math.max(chunksNeeded, this.chunks.length * GROWTH_FACTOR)
+            );
+        }
+        while (this.numChunks < chunksNeeded) {
+            this.chunks[this.numChunks++] = ByteBuffer.allocateDirect(
+                    CHUNK_SLOTS << RECORD_SHIFT);
+        }
+    }
+
+    /**
+     * Drop the removed records and the chunks no event is stored in any
+     * more
+     */
+    @Override
+    public void trimToSize() {
+        this.compact();
+        int chunksNeeded =
+                (this.getNumRows() + CHUNK_SLOTS - 1) >>> CHUNK_SHIFT;
+        while (this.numChunks > chunksNeeded) {
+            this.chunks[--this.numChunks] = null;
+        }
+    }
+
+    /**
+     * Unit tests checking the off-heap store behaves like an EventCalendar
+     *
+     * @param args unused, does not take command line arguments
+     */
+    public static void main(String[] args) {
+        EventCalendar expected = new EventCalendar();
+        OffHeapEventCalendar offHeap = new OffHeapEventCalendar();
+        assert offHeap.getCapacity() == 0;
+
+        // spill over more than one chunk
+        Event[] events = new Event[CHUNK_SLOTS + 1000];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event(
+                    Date.of(2024, 3, 1).plusDays(i / 18),
+                    Timeslot.values()[i % 3],
+                    Location.values()[i / 3 % 6],
+                    new Contact(Department.values()[i % 5],
+                                "c" + i % 11 + "@rutgers.edu"
+                    ),
+                    30 + i % 91
+            );
+            assert expected.addIfAbsent(events[i]) &&
+                   offHeap.addIfAbsent(events[i]);
+        }
+        assert offHeap.getNumEvents() == events.length;
+        assert offHeap.getCapacity() == 2 * CHUNK_SLOTS;
+        assert !offHeap.add(events[7]);
+        Event sameSlot = new Event(events[7].getDate(),
+                                   events[7].getTimeslot(),
+                                   events[7].getLocation(),
+                                   new Contact(Department.EE,
+                                               "ee@rutgers.edu"
+                                   ), 45
+        );
+        assert offHeap.hasConflict(sameSlot);
+
+        // remove across the chunk boundary, by batch and by filter
+        assert offHeap.remove(events[5]) && expected.remove(events[5]);
+        assert !offHeap.remove(events[5]);
+        Event[] batch = {events[CHUNK_SLOTS - 1], events[CHUNK_SLOTS],
+                         events[CHUNK_SLOTS], events[0]};
+        assert Arrays.equals(offHeap.removeAll(batch),
+                             expected.removeAll(batch));
+        assert offHeap.removeIf(event -> event.getDuration() > 100) ==
+               expected.removeIf(event -> event.getDuration() > 100);
+        assert !offHeap.contains(events[CHUNK_SLOTS]);
+        assert offHeap.contains(events[CHUNK_SLOTS + 1]);
+
+        // every print matches EventCalendar's
+        StringBuilder want = new StringBuilder();
+        StringBuilder got = new StringBuilder();
+        expected.print(want);
+        expected.printByDate(want);
+        expected.printByCampus(want);
+        expected.printByDepartment(want);
+        offHeap.print(got);
+        offHeap.printByDate(got);
+        offHeap.printByCampus(got);
+        offHeap.printByDepartment(got);
+        assert got.toString().equals(want.toString());
+
+        // the booked slots and the index match EventCalendar's
+        for (Event event : events) {
+            assert offHeap.isFree(event.getDate(), event.getTimeslot(),
+                                  event.getLocation()) ==
+                   expected.isFree(event.getDate(), event.getTimeslot(),
+                                   event.getLocation());
+            assert offHeap.contains(event) == expected.contains(event);
+        }
+
+        // the second chunk is dropped once it is empty
+        int numLeft = offHeap.getNumEvents();
+        assert offHeap.removeIf(event -> !event.equals(events[1])) ==
+               numLeft - 1;
+        offHeap.trimToSize();
+        assert offHeap.getCapacity() == CHUNK_SLOTS;
+        assert offHeap.toArray()[0].toString().equals(events[1].toString());
+        assert offHeap.addAll(new Event[]{events[5], events[1]})[0];
+        assert offHeap.getNumEvents() == 2;
+    }
+}
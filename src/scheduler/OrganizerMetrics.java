@@ -0,0 +1,340 @@
+package scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the commands EventOrganizers run on a
+ * calendar, shared by every organizer working on it. Commands are counted
+ * and timed by type, rejected commands are counted by reason, and the
+ * size and capacity of the calendar are read when asked for. The metrics
+ * can be read with the STATS command or over JMX once registered.
+ * <p>
+ * While disabled, an organizer only reads the enabled flag per command.
+ */
+public class OrganizerMetrics implements OrganizerMetricsMXBean {
+    /**
+     * Types of commands, by the token that starts them
+     */
+    public enum Command {
+        A, R, P, PE, PC, PD, F, FR, FN, S, STATS,
+        //empty or unknown commands
+        INVALID
+    }
+
+    /**
+     * Reasons a command is rejected
+     */
+    public enum Failure {
+        MALFORMED("malformed command"),
+        INVALID_DATE("invalid date"),
+        PAST_DATE("past date"),
+        TOO_FAR("more than 6 months away"),
+        BAD_TIMESLOT("bad time slot"),
+        BAD_LOCATION("bad location"),
+        BAD_DEPARTMENT("bad department"),
+        BAD_DURATION("bad duration"),
+        BAD_EMAIL("bad email"),
+        CONFLICT("conflict"),
+        INTERNAL_ERROR("internal error");
+
+        private final String description;
+
+        /**
+         * Only used internally to describe each constant
+         *
+         * @param description what went wrong, in words
+         */
+        Failure(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Get what went wrong, in words
+         *
+         * @return description of the reason
+         */
+        @Override
+        public String toString() {
+            return this.description;
+        }
+    }
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final Failure[] FAILURES = Failure.values();
+
+    private final AbstractEventCalendar eventCalendar; //calendar being measured
+    private volatile boolean enabled;
+    private final LatencyHistogram[] latencies; //by Command ordinal
+    private final LongAdder[] failures; //by Failure ordinal
+
+    /**
+     * Create enabled metrics of the organizers working on a calendar
+     *
+     * @param eventCalendar calendar the organizers work on
+     */
+    public OrganizerMetrics(AbstractEventCalendar eventCalendar) {
+        this.eventCalendar = eventCalendar;
+        this.enabled = true;
+        this.latencies = new LatencyHistogram[COMMANDS.length];
+        for (int i = 0; i < COMMANDS.length; i++) {
+            this.latencies[i] = new LatencyHistogram();
+        }
+        this.failures = new LongAdder[FAILURES.length];
+        for (int i = 0; i < FAILURES.length; i++) {
+            this.failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Register the metrics with the platform MBean server
+     *
+     * @param name name telling these metrics apart from other organizers'
+     * @return name the metrics are registered under
+     * @throws JMException if the name is taken or cannot be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(
+                "scheduler:type=OrganizerMetrics,name=" +
+                ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer()
+                         .registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Count and time one command, if enabled
+     *
+     * @param command type of the command
+     * @param nanos   time the command took
+     */
+    public void recordCommand(Command command, long nanos) {
+        if (this.enabled) {
+            this.latencies[command.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * Count one rejected command, if enabled
+     *
+     * @param failure reason the command was rejected
+     */
+    public void recordFailure(Failure failure) {
+        if (this.enabled) {
+            this.failures[failure.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Get number of commands of a type run
+     *
+     * @param command type of command
+     * @return number of commands
+     */
+    public long getCommandCount(Command command) {
+        return this.latencies[command.ordinal()].getCount();
+    }
+
+    /**
+     * Get number of commands rejected for a reason
+     *
+     * @param failure reason
+     * @return number of commands
+     */
+    public long getFailureCount(Failure failure) {
+        return this.failures[failure.ordinal()].sum();
+    }
+
+    /**
+     * Get latency histogram of a type of command
+     *
+     * @param command type of command
+     * @return histogram of the nanoseconds the commands took
+     */
+    public LatencyHistogram getLatency(Command command) {
+        return this.latencies[command.ordinal()];
+    }
+
+    /**
+     * Read one statistic of every type of command that was run
+     *
+     * @param statistic statistic to read from a latency histogram
+     * @return command type -> statistic, in Command order
+     */
+    private Map<String, Long> byCommand(
+            ToLongFunction<LatencyHistogram> statistic
+    ) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Command command : COMMANDS) {
+            LatencyHistogram latency = this.latencies[command.ordinal()];
+            if (latency.getCount() > 0) {
+                values.put(command.name(), statistic.applyAsLong(latency));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return this.byCommand(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Failure failure : FAILURES) {
+            counts.put(failure.name(), this.getFailureCount(failure));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getMedianLatencyNanos() {
+        return this.byCommand(latency -> latency.percentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99LatencyNanos() {
+        return this.byCommand(latency -> latency.percentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getMaxLatencyNanos() {
+        return this.byCommand(LatencyHistogram::getMax);
+    }
+
+    @Override
+    public int getNumEvents() {
+        return this.eventCalendar.getNumEvents();
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.eventCalendar.getCapacity();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram latency : this.latencies) {
+            latency.reset();
+        }
+        for (LongAdder failure : this.failures) {
+            failure.reset();
+        }
+    }
+
+    /**
+     * Append the metrics to the given buffer, one line per statistic
+     *
+     * @param output buffer each line is appended to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        String newLine = System.lineSeparator();
+        output.append("events: ").append(this.getNumEvents())
+              .append(", capacity: ").append(this.getCapacity())
+              .append(newLine);
+        for (Command command : COMMANDS) {
+            LatencyHistogram latency = this.latencies[command.ordinal()];
+            long count = latency.getCount();
+            if (count == 0) {
+                continue;
+            }
+            output.append(command.name()).append(": count=").append(count)
+                  .append(", p50=").append(latency.percentile(50))
+                  .append("ns, p99=").append(latency.percentile(99))
+                  .append("ns, max=").append(latency.getMax())
+                  .append("ns").append(newLine);
+        }
+        for (Failure failure : FAILURES) {
+            long count = this.getFailureCount(failure);
+            if (count > 0) {
+                output.append(failure).append(": ").append(count)
+                      .append(newLine);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Unit tests for counting and reading metrics
+     *
+     * @param args unused, does not take command line arguments
+     * @throws JMException if the metrics cannot be registered
+     */
+    public static void main(String[] args) throws JMException {
+        EventCalendar calendar = new EventCalendar();
+        OrganizerMetrics metrics = new OrganizerMetrics(calendar);
+        StringBuilder output = new StringBuilder();
+        EventOrganizer organizer = new EventOrganizer(
+                calendar, output, WorkloadGenerator.CLOCK);
+        organizer.setMetrics(metrics);
+
+        String contact = " hll114 cs cs@rutgers.edu 60";
+        organizer.processCommand("A 3/1/2024 morning" + contact);
+        organizer.processCommand("A 3/1/2024 morning" + contact);
+        organizer.processCommand("A 3/1/2024 noon" + contact);
+        organizer.processCommand("A 12/1/2023 morning" + contact);
+        organizer.processCommand(
+                "A 3/1/2024 evening hll114 cs cs@gmail.com 60");
+        organizer.processCommand("PE");
+        organizer.processCommand("X");
+        assert metrics.getCommandCount(Command.A) == 5;
+        assert metrics.getCommandCount(Command.PE) == 1;
+        assert metrics.getCommandCount(Command.INVALID) == 1;
+        assert metrics.getFailureCount(Failure.CONFLICT) == 1;
+        assert metrics.getFailureCount(Failure.BAD_TIMESLOT) == 1;
+        assert metrics.getFailureCount(Failure.PAST_DATE) == 1;
+        assert metrics.getFailureCount(Failure.BAD_EMAIL) == 1;
+        assert metrics.getNumEvents() == 1;
+        assert metrics.getLatency(Command.A).getMax() > 0;
+
+        output.setLength(0);
+        organizer.processCommand("STATS");
+        assert output.indexOf("events: 1, capacity: ") >= 0;
+        assert output.indexOf("A: count=5, p50=") >= 0;
+        assert output.indexOf("conflict: 1") >= 0;
+
+        // nothing is counted while disabled
+        metrics.setEnabled(false);
+        organizer.processCommand("P");
+        assert metrics.getCommandCount(Command.P) == 0;
+        metrics.setEnabled(true);
+
+        // a date that does not parse is reported, not thrown
+        output.setLength(0);
+        organizer.processCommand("R abc morning hll114");
+        assert output.toString().startsWith("abc: Invalid calendar date!");
+        organizer.processCommand("F abc morning hll114");
+        organizer.processCommand("FR x morning");
+        organizer.processCommand("FN x morning hll114");
+        assert output.indexOf("x: Invalid calendar date!") >= 0;
+        assert metrics.getFailureCount(Failure.INVALID_DATE) == 4;
+
+        // JMX clients see the same numbers
+        ObjectName name = metrics.register("test");
+        Object counts = ManagementFactory.getPlatformMBeanServer()
+                                         .getAttribute(name, "CommandCounts");
+        assert counts.toString().contains("PE");
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+
+        metrics.reset();
+        assert metrics.getCommandCount(Command.A) == 0;
+        assert metrics.getFailureCount(Failure.CONFLICT) == 0;
+    }
+}
@@ -0,0 +1,77 @@
+package scheduler;
+
+import java.util.Map;
+
+/**
+ * Management interface of OrganizerMetrics, how JMX clients such as
+ * JConsole see the metrics of the organizers.
+ */
+public interface OrganizerMetricsMXBean {
+    /**
+     * Check if commands are being measured
+     *
+     * @return true if commands are measured, false otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop measuring commands
+     *
+     * @param enabled true to measure commands, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get number of commands run, by command type
+     *
+     * @return command type -> number of commands
+     */
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * Get number of commands rejected, by reason
+     *
+     * @return reason -> number of commands
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * Get median latency, by command type
+     *
+     * @return command type -> latency in nanoseconds
+     */
+    Map<String, Long> getMedianLatencyNanos();
+
+    /**
+     * Get 99th percentile latency, by command type
+     *
+     * @return command type -> latency in nanoseconds
+     */
+    Map<String, Long> getP99LatencyNanos();
+
+    /**
+     * Get largest latency, by command type
+     *
+     * @return command type -> latency in nanoseconds
+     */
+    Map<String, Long> getMaxLatencyNanos();
+
+    /**
+     * Get number of events in the calendar
+     *
+     * @return number of events
+     */
+    int getNumEvents();
+
+    /**
+     * Get number of events the calendar can hold before it has to grow
+     *
+     * @return capacity of the calendar
+     */
+    int getCapacity();
+
+    /**
+     * Forget every count and latency
+     */
+    void reset();
+}
@@ -0,0 +1,1107 @@
+package scheduler;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A calendar that stores each event as packed primitive fields in a
+ * numbered row instead of as an Event object. The contact email is stored
+ * once in a table of distinct emails and referred to by id, and rows are
+ * found through an index on slot keys. Subclasses only provide the storage
+ * of the rows and of the index; adding, removing, printing, iterating and
+ * querying work on the rows here. Event objects are only created when they
+ * are handed out or printed.
+ * <p>
+ * Removing an event only marks its row as removed. The rows are compacted,
+ * keeping their order, once more rows are removed than in use, so a
+ * removal costs amortized constant time instead of shifting every later
+ * row.
+ */
+public abstract class PackedEventCalendar extends AbstractEventCalendar {
+    //bits of a sort key taken by the date, time slot and location
+    static final int SLOT_KEY_BITS = 48;
+    private static final int TIMESLOT_SHIFT = 8;
+    private static final int DATE_SHIFT = 16;
+    //time slot ordinal marking a removed row
+    static final int REMOVED = -1;
+
+    private int numRows; //rows written so far, removed ones included
+    private int numEvents = INITIAL_NUMBER_OF_EVENTS; //rows in use
+    //events added or removed so far, tells when sorted keys are stale
+    private int numChanges;
+    //sort orders of printByDate, printByCampus and printByDepartment
+    private final SortOrder byDate =
+            new SortOrder(DATE_COMPARATOR, event -> 0, row -> 0);
+    private final SortOrder byCampus = new SortOrder(
+            CAMPUS_COMPARATOR,
+            event -> CAMPUS_RANK[event.getLocation().ordinal()],
+            row -> CAMPUS_RANK[this.locationAt(row)]
+    );
+    private final SortOrder byDepartment = new SortOrder(
+            DEPARTMENT_COMPARATOR,
+            event -> DEPARTMENT_RANK[
+                    event.getContact().getDepartment().ordinal()],
+            row -> DEPARTMENT_RANK[this.departmentAt(row)]
+    );
+
+    //every distinct email seen, emails are never dropped from the table
+    private final ArrayList<String> emails = new ArrayList<>();
+    private final HashMap<String, Integer> emailIdOf = new HashMap<>();
+    //booked slots of every location
+    private final OccupancyIndex occupancy = new OccupancyIndex();
+
+    /**
+     * Get the packed date of a row
+     *
+     * @param row number of the row
+     * @return packed date of the event in the row
+     */
+    abstract int dateAt(int row);
+
+    /**
+     * Get the time slot ordinal of a row
+     *
+     * @param row number of the row
+     * @return time slot ordinal of the event in the row
+     */
+    abstract int timeslotAt(int row);
+
+    /**
+     * Get the location ordinal of a row
+     *
+     * @param row number of the row
+     * @return location ordinal of the event in the row
+     */
+    abstract int locationAt(int row);
+
+    /**
+     * Get the contact department ordinal of a row
+     *
+     * @param row number of the row
+     * @return department ordinal of the event in the row
+     */
+    abstract int departmentAt(int row);
+
+    /**
+     * Get the duration of a row
+     *
+     * @param row number of the row
+     * @return duration in minutes of the event in the row
+     */
+    abstract int durationAt(int row);
+
+    /**
+     * Get the email id of a row
+     *
+     * @param row number of the row
+     * @return id of the contact email of the event in the row
+     */
+    abstract int emailIdAt(int row);
+
+    /**
+     * Store an event in a row the storage has room for
+     *
+     * @param row     number of the row
+     * @param event   the event, whose duration fits a short
+     * @param emailId id of the event's contact email
+     */
+    abstract void writeRow(int row, Event event, int emailId);
+
+    /**
+     * Mark a row as removed by setting its time slot ordinal to REMOVED
+     *
+     * @param row number of the row
+     */
+    abstract void markRemoved(int row);
+
+    /**
+     * Copy a row to another row number
+     *
+     * @param from number of the row to copy
+     * @param to   number of the row to overwrite
+     */
+    abstract void copyRow(int from, int to);
+
+    /**
+     * Find the row of a slot key in the index
+     *
+     * @param key the slot key
+     * @return number of the row, NOT_FOUND if the slot is free
+     */
+    abstract int rowOf(long key);
+
+    /**
+     * Point the index entry of a slot key at a row, adding the entry if
+     * needed. The row must already hold the key.
+     *
+     * @param key the slot key
+     * @param row number of the row
+     */
+    abstract void indexRow(long key, int row);
+
+    /**
+     * Drop the index entry of a slot key, if it has one
+     *
+     * @param key the slot key
+     */
+    abstract void unindexRow(long key);
+
+    /**
+     * Pack the fields that identify an event into one key. Keys order the
+     * same way DATE_COMPARATOR orders events.
+     *
+     * @param date     packed date of the event
+     * @param timeslot timeslot ordinal of the event
+     * @param location location ordinal of the event
+     * @return slot key, below 2 to the power SLOT_KEY_BITS
+     */
+    static long slotKey(int date, int timeslot, int location) {
+        return ((long) date - Integer.MIN_VALUE) << DATE_SHIFT |
+               (long) timeslot << TIMESLOT_SHIFT |
+               LOCATION_NAME_RANK[location];
+    }
+
+    /**
+     * Get the slot key of an event
+     *
+     * @param event the event
+     * @return slot key of the event's date, time slot and location
+     */
+    static long slotKey(Event event) {
+        return PackedEventCalendar.slotKey(
+                event.getDate().toPackedInt(),
+                event.getTimeslot().ordinal(),
+                event.getLocation().ordinal()
+        );
+    }
+
+    /**
+     * Get the slot key of a row
+     *
+     * @param row number of the row
+     * @return slot key of the event's date, time slot and location
+     */
+    long slotKeyAt(int row) {
+        return PackedEventCalendar.slotKey(this.dateAt(row),
+                                           this.timeslotAt(row),
+                                           this.locationAt(row)
+        );
+    }
+
+    /**
+     * Checks if a row was removed
+     *
+     * @param row number of the row
+     * @return true if the row holds no event any more
+     */
+    private boolean isRemoved(int row) {
+        return this.timeslotAt(row) == REMOVED;
+    }
+
+    /**
+     * Get number of rows written so far, removed rows included until the
+     * rows are compacted
+     *
+     * @return number of rows
+     */
+    int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * Create the Event stored in a row
+     *
+     * @param row number of the row
+     * @return a new Event equal to the stored one
+     */
+    private Event eventAt(int row) {
+        return new Event(Date.ofPackedInt(this.dateAt(row)),
+                         TIMESLOTS[this.timeslotAt(row)],
+                         LOCATIONS[this.locationAt(row)],
+                         new Contact(DEPARTMENTS[this.departmentAt(row)],
+                                     this.emails.get(this.emailIdAt(row))
+                         ),
+                         this.durationAt(row)
+        );
+    }
+
+    /**
+     * Get number of events in calendar
+     *
+     * @return number of events
+     */
+    @Override
+    public int getNumEvents() {
+        return this.numEvents;
+    }
+
+    /**
+     * Add a new event to calendar. Unlike EventCalendar.add this never
+     * adds an event that conflicts with one already in the calendar.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if it conflicted
+     * @throws IllegalArgumentException if the duration does not fit a
+     *                                  short
+     */
+    @Override
+    public boolean add(Event event) {
+        return this.addIfAbsent(event);
+    }
+
+    /**
+     * Add a new event to calendar unless it conflicts with an event
+     * already in the calendar.
+     *
+     * @param event the event to add
+     * @return true if the event was added, false if it conflicted
+     * @throws IllegalArgumentException if the duration does not fit a
+     *                                  short
+     * @throws IllegalStateException    if the storage is full
+     */
+    @Override
+    public boolean addIfAbsent(Event event) {
+        long key = PackedEventCalendar.slotKey(event);
+        if (this.rowOf(key) != NOT_FOUND) {
+            return false;
+        }
+        int duration = event.getDuration();
+        if (duration < Short.MIN_VALUE || duration > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Invalid duration: " + duration);
+        }
+
+        this.ensureCapacity(this.numRows + 1);
+        int row = this.numRows;
+        this.writeRow(row, event,
+                      this.emailIdOf(event.getContact().getEmail()));
+        this.indexRow(key, row);
+        this.occupancy.occupy(event);
+        this.numRows++;
+        this.numEvents++;
+        this.numChanges++;
+        return true;
+    }
+
+    /**
+     * Get the id of an email in the email table, adding it if needed
+     *
+     * @param email the email
+     * @return index of the email in emails
+     */
+    private int emailIdOf(String email) {
+        Integer emailId = this.emailIdOf.get(email);
+        if (emailId == null) {
+            emailId = this.emails.size();
+            this.emails.add(email);
+            this.emailIdOf.put(email, emailId);
+        }
+        return emailId;
+    }
+
+    /**
+     * Remove the event at an event's date, time slot and location by
+     * marking its row as removed.
+     *
+     * @param event the event to remove
+     * @return true if event existed and was removed from calendar. False if
+     * the event did not exist and could not be removed
+     */
+    @Override
+    public boolean remove(Event event) {
+        long key = PackedEventCalendar.slotKey(event);
+        int row = this.rowOf(key);
+        if (row == NOT_FOUND) {
+            return false;
+        }
+        this.removeRow(row, key);
+        this.compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Drop a row from the index and the occupancy bitmap and mark it as
+     * removed
+     *
+     * @param row number of the row, which is in use
+     * @param key slot key of the row
+     */
+    private void removeRow(int row, long key) {
+        this.unindexRow(key);
+        this.occupancy.free(Date.ofPackedInt(this.dateAt(row)).toEpochDay(),
+                            this.timeslotAt(row),
+                            this.locationAt(row)
+        );
+        this.markRemoved(row);
+        this.numEvents--;
+        this.numChanges++;
+    }
+
+    /**
+     * Add a batch of events, reserving room for all of them up front. An
+     * event is skipped if it conflicts with an event already in the
+     * calendar or with an earlier event of the same batch.
+     *
+     * @param eventsToAdd the events to add
+     * @return for each event, true if it was added and false if it
+     * conflicted
+     */
+    @Override
+    public boolean[] addAll(Event[] eventsToAdd) {
+        this.ensureCapacity(this.numRows + eventsToAdd.length);
+
+        boolean[] added = new boolean[eventsToAdd.length];
+        for (int i = 0; i < eventsToAdd.length; i++) {
+            added[i] = this.addIfAbsent(eventsToAdd[i]);
+        }
+        return added;
+    }
+
+    /**
+     * Remove a batch of events, compacting the rows at most once.
+     *
+     * @param eventsToRemove the events to remove
+     * @return for each event, true if it was removed and false if it was
+     * not in the calendar
+     */
+    @Override
+    public boolean[] removeAll(Event[] eventsToRemove) {
+        boolean[] removed = new boolean[eventsToRemove.length];
+        for (int i = 0; i < eventsToRemove.length; i++) {
+            long key = PackedEventCalendar.slotKey(eventsToRemove[i]);
+            int row = this.rowOf(key);
+            if (row != NOT_FOUND) {
+                this.removeRow(row, key);
+                removed[i] = true;
+            }
+        }
+        this.compactIfSparse();
+        return removed;
+    }
+
+    /**
+     * Remove every event matching a filter in a single sweep over the
+     * rows. Each event is created to be tested.
+     *
+     * @param filter returns true for the events to remove
+     * @return number of events removed
+     */
+    @Override
+    public int removeIf(Predicate<Event> filter) {
+        int numRemoved = 0;
+        for (int row = 0; row < this.numRows; row++) {
+            if (!this.isRemoved(row) && filter.test(this.eventAt(row))) {
+                this.removeRow(row, this.slotKeyAt(row));
+                numRemoved++;
+            }
+        }
+        this.compactIfSparse();
+        return numRemoved;
+    }
+
+    /**
+     * Compact the rows once more of them are removed than in use, so the
+     * cost of compacting is spread over the removals that made it needed
+     */
+    private void compactIfSparse() {
+        if (this.numRows - this.numEvents > this.numEvents) {
+            this.compact();
+        }
+    }
+
+    /**
+     * Drop the removed rows and shift the remaining ones down in one pass,
+     * keeping their order and updating the index. A row is only
+     * overwritten once its own entry points elsewhere or was dropped, so
+     * the index never leads to a row holding another key.
+     */
+    void compact() {
+        int kept = 0;
+        for (int row = 0; row < this.numRows; row++) {
+            if (this.isRemoved(row)) {
+                continue;
+            }
+            if (kept != row) {
+                this.copyRow(row, kept);
+                this.indexRow(this.slotKeyAt(kept), kept);
+            }
+            kept++;
+        }
+        this.numRows = kept;
+    }
+
+    /**
+     * Checks if the calendar contains an event at the same date, time slot
+     * and location
+     *
+     * @param event the Event object to check for
+     * @return true if it is found, false if it does not exist in the calendar
+     */
+    @Override
+    public boolean contains(Event event) {
+        return this.rowOf(PackedEventCalendar.slotKey(event)) != NOT_FOUND;
+    }
+
+    /**
+     * Check if no event is booked at a location in a time slot, without
+     * creating an event to look up
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @param location location to check
+     * @return true if the slot is free, false if an event is booked in it
+     */
+    @Override
+    public boolean isFree(Date date, Timeslot timeslot, Location location) {
+        return !this.occupancy.isOccupied(date.toEpochDay(),
+                                          timeslot.ordinal(),
+                                          location.ordinal()
+        );
+    }
+
+    /**
+     * Find every location with no event booked in a time slot
+     *
+     * @param date     date of the slot
+     * @param timeslot time slot to check
+     * @return the free locations, in the order Location declares them
+     */
+    @Override
+    public Location[] freeLocations(Date date, Timeslot timeslot) {
+        return this.occupancy.freeLocations(date.toEpochDay(),
+                                            timeslot.ordinal()
+        );
+    }
+
+    /**
+     * Find the first time slot of a location, at or after a given slot,
+     * with no event booked in it
+     *
+     * @param location location to check
+     * @param date     date to start from
+     * @param timeslot time slot to start from on that date
+     * @return the first free slot
+     */
+    @Override
+    public RoomSlot nextFreeSlot(
+            Location location, Date date, Timeslot timeslot
+    ) {
+        long slot = this.occupancy.nextFree(date.toEpochDay(),
+                                            timeslot.ordinal(),
+                                            location.ordinal()
+        );
+        return AbstractEventCalendar.roomSlotOf(slot, location);
+    }
+
+    /**
+     * Create every event in the order they were added
+     *
+     * @return new array holding every event of the calendar
+     */
+    @Override
+    public Event[] toArray() {
+        Event[] events = new Event[this.numEvents];
+        int numCreated = 0;
+        for (int row = 0; row < this.numRows; row++) {
+            if (!this.isRemoved(row)) {
+                events[numCreated++] = this.eventAt(row);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * print the events in the order they were added
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void print(StringBuilder output) {
+        for (int row = 0; row < this.numRows; row++) {
+            if (!this.isRemoved(row)) {
+                this.eventAt(row)
+                    .appendTo(output)
+                    .append(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * A sort order of the events, as one primitive key per event. The high
+     * bits of a key are the event's rank in the order and the low
+     * SLOT_KEY_BITS bits its slot key, which makes the keys unique, orders
+     * them like the comparator and leads back to the event's row. The
+     * sorted keys are kept until an event is added or removed.
+     */
+    private class SortOrder {
+        private final Comparator<Event> comparator; //order of the keys
+        //rank of an event in the order before its slot key
+        private final ToIntFunction<Event> eventRank;
+        private final RowRank rowRank; //rank of the event of a row
+        private long[] keys = new long[0]; //sorted keys of every event
+        private int sortedAt = -1; //numChanges when keys were sorted
+
+        /**
+         * Create a sort order
+         *
+         * @param comparator order of the events
+         * @param eventRank  rank of an event before its slot key
+         * @param rowRank    rank of the event of a row, the same as
+         *                   eventRank gives for the event
+         */
+        private SortOrder(
+                Comparator<Event> comparator, ToIntFunction<Event> eventRank,
+                RowRank rowRank
+        ) {
+            this.comparator = comparator;
+            this.eventRank = eventRank;
+            this.rowRank = rowRank;
+        }
+
+        /**
+         * Get the key of an event, which need not be in the calendar
+         *
+         * @param event the event
+         * @return key of the event in this order
+         */
+        private long keyOf(Event event) {
+            return (long) this.eventRank.applyAsInt(event) << SLOT_KEY_BITS |
+                   PackedEventCalendar.slotKey(event);
+        }
+
+        /**
+         * Get the keys of every event in order, sorting them again only if
+         * events were added or removed since they were last sorted
+         *
+         * @return the sorted keys, not to be changed
+         */
+        private long[] keys() {
+            PackedEventCalendar calendar = PackedEventCalendar.this;
+            if (this.sortedAt != calendar.numChanges) {
+                long[] sorted = new long[calendar.numEvents];
+                int numKeys = 0;
+                for (int row = 0; row < calendar.numRows; row++) {
+                    if (!calendar.isRemoved(row)) {
+                        sorted[numKeys++] =
+                                (long) this.rowRank.rank(row) <<
+                                SLOT_KEY_BITS | calendar.slotKeyAt(row);
+                    }
+                }
+                Arrays.sort(sorted);
+                this.keys = sorted;
+                this.sortedAt = calendar.numChanges;
+            }
+            return this.keys;
+        }
+    }
+
+    /**
+     * Create the event of a key of a sort order
+     *
+     * @param key the key, of an event in the calendar
+     * @return a new Event equal to the stored one
+     */
+    private Event eventOfKey(long key) {
+        return this.eventAt(this.rowOf(key & ((1L << SLOT_KEY_BITS) - 1)));
+    }
+
+    /**
+     * Print the events in a sort order
+     *
+     * @param order  the order to print the events in
+     * @param output buffer each event is appended to, one per line
+     */
+    private void printSorted(SortOrder order, StringBuilder output) {
+        for (long key : order.keys()) {
+            this.eventOfKey(key)
+                .appendTo(output)
+                .append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Rank of the event in a row in a sort order
+     */
+    private interface RowRank {
+        /**
+         * Get the rank of an event
+         *
+         * @param row number of the row of the event
+         * @return rank of the event, small and not negative
+         */
+        int rank(int row);
+    }
+
+    /**
+     * Read-only view of the events whose keys lie in a range of a sort
+     * order. Every call reads the order's current keys, so the view
+     * follows later changes to the calendar, and an Event is only created
+     * for an event the caller reaches. Its iterators read the keys as they
+     * are when created, so they should not be used after the calendar
+     * changes.
+     */
+    private class SortedView extends AbstractSet<Event>
+            implements NavigableSet<Event> {
+        private final SortOrder order; //order of the view
+        private final long low; //smallest key in the view
+        private final long high; //key after the largest key in the view
+
+        /**
+         * Create a view of the keys from low up to but not including high
+         *
+         * @param order the sort order
+         * @param low   smallest key in the view
+         * @param high  key after the largest key in the view
+         */
+        private SortedView(SortOrder order, long low, long high) {
+            this.order = order;
+            this.low = low;
+            this.high = Math.max(low, high);
+        }
+
+        /**
+         * Find where a key is or would be in sorted keys
+         *
+         * @param keys  the sorted keys
+         * @param bound the key to look up
+         * @return index of the first key not below bound
+         */
+        private static int indexOf(long[] keys, long bound) {
+            int index = Arrays.binarySearch(keys, bound);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Get the event at an index of the keys if it is in the view
+         *
+         * @param keys  the sorted keys
+         * @param index index into keys
+         * @return the event, or null if the index is outside the view
+         */
+        private Event eventAt(long[] keys, int index) {
+            if (index < 0 || index >= keys.length || keys[index] < this.low ||
+                keys[index] >= this.high) {
+                return null;
+            }
+            return PackedEventCalendar.this.eventOfKey(keys[index]);
+        }
+
+        /**
+         * Get a view of a narrower range of keys
+         *
+         * @param low  smallest key of the range
+         * @param high key after the largest key of the range
+         * @return view of the keys in both this view and the range
+         */
+        private SortedView range(long low, long high) {
+            return new SortedView(this.order, Math.max(this.low, low),
+                                  Math.min(this.high, high)
+            );
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            long[] keys = this.order.keys();
+            int first = SortedView.indexOf(keys, this.low);
+            int end = SortedView.indexOf(keys, this.high);
+            return new Iterator<>() {
+                private int next = first; //index of the next key
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < end;
+                }
+
+                @Override
+                public Event next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return PackedEventCalendar.this.eventOfKey(
+                            keys[this.next++]);
+                }
+            };
+        }
+
+        @Override
+        public Iterator<Event> descendingIterator() {
+            long[] keys = this.order.keys();
+            int first = SortedView.indexOf(keys, this.low);
+            int end = SortedView.indexOf(keys, this.high);
+            return new Iterator<>() {
+                private int next = end - 1; //index of the next key
+
+                @Override
+                public boolean hasNext() {
+                    return this.next >= first;
+                }
+
+                @Override
+                public Event next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return PackedEventCalendar.this.eventOfKey(
+                            keys[this.next--]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            long[] keys = this.order.keys();
+            return SortedView.indexOf(keys, this.high) -
+                   SortedView.indexOf(keys, this.low);
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            if (!(object instanceof Event event)) {
+                return false;
+            }
+            long key = this.order.keyOf(event);
+            return key >= this.low && key < this.high &&
+                   Arrays.binarySearch(this.order.keys(), key) >= 0;
+        }
+
+        @Override
+        public Comparator<? super Event> comparator() {
+            return this.order.comparator;
+        }
+
+        @Override
+        public Event first() {
+            Event first = this.ceiling(null);
+            if (first == null) {
+                throw new NoSuchElementException();
+            }
+            return first;
+        }
+
+        @Override
+        public Event last() {
+            Event last = this.floor(null);
+            if (last == null) {
+                throw new NoSuchElementException();
+            }
+            return last;
+        }
+
+        /**
+         * Get the first event not below a bound
+         *
+         * @param bound the bound, or null for the first event of the view
+         * @return the event, or null if there is none
+         */
+        @Override
+        public Event ceiling(Event bound) {
+            long key = bound == null ? this.low : this.order.keyOf(bound);
+            long[] keys = this.order.keys();
+            return this.eventAt(keys, SortedView.indexOf(
+                    keys, Math.max(key, this.low)));
+        }
+
+        @Override
+        public Event higher(Event bound) {
+            long[] keys = this.order.keys();
+            return this.eventAt(keys, SortedView.indexOf(
+                    keys, Math.max(this.order.keyOf(bound) + 1, this.low)));
+        }
+
+        /**
+         * Get the last event not above a bound
+         *
+         * @param bound the bound, or null for the last event of the view
+         * @return the event, or null if there is none
+         */
+        @Override
+        public Event floor(Event bound) {
+            long key = bound == null ? this.high
+                                     : this.order.keyOf(bound) + 1;
+            long[] keys = this.order.keys();
+            return this.eventAt(keys, SortedView.indexOf(
+                    keys, Math.min(key, this.high)) - 1);
+        }
+
+        @Override
+        public Event lower(Event bound) {
+            long[] keys = this.order.keys();
+            return this.eventAt(keys, SortedView.indexOf(
+                    keys, Math.min(this.order.keyOf(bound), this.high)) - 1);
+        }
+
+        @Override
+        public Event pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Event pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Get the view in reverse order, copied into a TreeSet since the
+         * sort orders only run forward
+         *
+         * @return read-only copy of the view in reverse order
+         */
+        @Override
+        public NavigableSet<Event> descendingSet() {
+            return Collections.unmodifiableNavigableSet(
+                    new TreeSet<>(this).descendingSet());
+        }
+
+        @Override
+        public NavigableSet<Event> subSet(
+                Event fromElement, boolean fromInclusive, Event toElement,
+                boolean toInclusive
+        ) {
+            if (this.order.comparator.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException(
+                        "fromElement is after toElement");
+            }
+            return this.range(
+                    this.order.keyOf(fromElement) + (fromInclusive ? 0 : 1),
+                    this.order.keyOf(toElement) + (toInclusive ? 1 : 0)
+            );
+        }
+
+        @Override
+        public NavigableSet<Event> headSet(Event toElement, boolean inclusive) {
+            return this.range(this.low, this.order.keyOf(toElement) +
+                                        (inclusive ? 1 : 0));
+        }
+
+        @Override
+        public NavigableSet<Event> tailSet(
+                Event fromElement, boolean inclusive
+        ) {
+            return this.range(this.order.keyOf(fromElement) +
+                              (inclusive ? 0 : 1), this.high);
+        }
+
+        @Override
+        public SortedSet<Event> subSet(Event fromElement, Event toElement) {
+            return this.subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<Event> headSet(Event toElement) {
+            return this.headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<Event> tailSet(Event fromElement) {
+            return this.tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * prints events ordered by date and timeslot
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDate(StringBuilder output) {
+        this.printSorted(this.byDate, output);
+    }
+
+    /**
+     * prints events ordered by campus and building/room
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByCampus(StringBuilder output) {
+        this.printSorted(this.byCampus, output);
+    }
+
+    /**
+     * prints events ordered by department
+     *
+     * @param output buffer each event is appended to, one per line
+     */
+    @Override
+    public void printByDepartment(StringBuilder output) {
+        this.printSorted(this.byDepartment, output);
+    }
+
+    /**
+     * Iterate over the events in the order they were added, starting at a
+     * position. Events are only created for the rows the iterator reaches,
+     * and the skipped rows are only scanned while some are removed.
+     *
+     * @param from number of events to skip
+     * @return iterator over the events from that position on, not
+     * supporting remove
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    @Override
+    public Iterator<Event> iterator(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Invalid position: " + from);
+        }
+        int first = this.rowOfPosition(from);
+        return new Iterator<>() {
+            private int row = first; //next row to look at
+
+            @Override
+            public boolean hasNext() {
+                PackedEventCalendar calendar = PackedEventCalendar.this;
+                while (this.row < calendar.numRows &&
+                       calendar.isRemoved(this.row)) {
+                    this.row++;
+                }
+                return this.row < calendar.numRows;
+            }
+
+            @Override
+            public Event next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return PackedEventCalendar.this.eventAt(this.row++);
+            }
+        };
+    }
+
+    /**
+     * Find the row of the event at a position in insertion order. Rows are
+     * only scanned while some of them are removed.
+     *
+     * @param position number of events before the event, not negative
+     * @return row of the event, or numRows if there are not that many
+     */
+    private int rowOfPosition(int position) {
+        if (this.numRows == this.numEvents) {
+            return Math.min(position, this.numRows);
+        }
+        int row = 0;
+        for (int skipped = 0; row < this.numRows; row++) {
+            if (!this.isRemoved(row) && skipped++ == position) {
+                break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Split the events in the order they were added, for streams
+     *
+     * @return sized spliterator over every event
+     */
+    @Override
+    public Spliterator<Event> spliterator() {
+        return Spliterators.spliterator(this.iterator(0), this.numEvents,
+                                        Spliterator.ORDERED |
+                                        Spliterator.NONNULL
+        );
+    }
+
+    /**
+     * Get a read-only view of the events ordered by date and timeslot. The
+     * view sorts primitive keys instead of events, and only creates the
+     * events a page of it reads.
+     *
+     * @return view of every event ordered by DATE_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDate() {
+        return new SortedView(this.byDate, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by campus and building
+     *
+     * @return view of every event ordered by CAMPUS_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByCampus() {
+        return new SortedView(this.byCampus, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get a read-only view of the events ordered by department
+     *
+     * @return view of every event ordered by DEPARTMENT_COMPARATOR
+     */
+    @Override
+    public NavigableSet<Event> eventsByDepartment() {
+        return new SortedView(this.byDepartment, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Find the events matching a query by checking every row, since the
+     * rows have no sorted views to range over. The criteria are tested on
+     * the stored fields, so an Event is only created for a matching row.
+     *
+     * @param query criteria the events must meet
+     * @return the matching events, ordered by date, time slot and location
+     * name
+     */
+    @Override
+    public Event[] query(EventQuery query) {
+        if (query.isEmpty()) {
+            return new Event[0];
+        }
+        int from = query.getFrom().toPackedInt();
+        int to = query.getTo().toPackedInt();
+        boolean[] timeslots = new boolean[TIMESLOTS.length];
+        for (Timeslot timeslot : query.getTimeslots()) {
+            timeslots[timeslot.ordinal()] = true;
+        }
+        boolean[] locations = new boolean[LOCATIONS.length];
+        for (Location location : query.getLocations()) {
+            locations[location.ordinal()] = true;
+        }
+        boolean[] departments = new boolean[DEPARTMENTS.length];
+        for (Department department : query.getDepartments()) {
+            departments[department.ordinal()] = true;
+        }
+        // emails are tested once each instead of once per row
+        boolean[] emailMatches = new boolean[this.emails.size()];
+        for (int id = 0; id < emailMatches.length; id++) {
+            emailMatches[id] = query.getEmail() == null ||
+                         query.getEmail().equals(
+                                 EventQuery.emailKey(this.emails.get(id)));
+        }
+
+        // slot keys order like DATE_COMPARATOR, so sorting them sorts rows
+        long[] keys = new long[this.numEvents];
+        int numMatching = 0;
+        for (int row = 0; row < this.numRows; row++) {
+            if (this.isRemoved(row)) {
+                continue;
+            }
+            int date = this.dateAt(row);
+            if (date >= from && date <= to &&
+                timeslots[this.timeslotAt(row)] &&
+                locations[this.locationAt(row)] &&
+                departments[this.departmentAt(row)] &&
+                emailMatches[this.emailIdAt(row)]) {
+                keys[numMatching++] = this.slotKeyAt(row);
+            }
+        }
+        Arrays.sort(keys, 0, numMatching);
+
+        Event[] matching = new Event[numMatching];
+        for (int i = 0; i < numMatching; i++) {
+            matching[i] = this.eventAt(this.rowOf(keys[i]));
+        }
+        return matching;
+    }
+}
@@ -0,0 +1,105 @@
+package scheduler;
+
+/**
+ * Class that represents a time slot of a Location on a date, whether or not
+ * an event is booked in it.
+ */
+public class RoomSlot {
+    private final Date date;
+    private final Timeslot timeslot;
+    private final Location location;
+
+    /**
+     * Constructor that assigns each instance variable
+     *
+     * @param date     date of the slot
+     * @param timeslot time the slot starts
+     * @param location location of the slot
+     */
+    public RoomSlot(Date date, Timeslot timeslot, Location location) {
+        this.date = date;
+        this.timeslot = timeslot;
+        this.location = location;
+    }
+
+    /**
+     * Get date of slot.
+     *
+     * @return date
+     */
+    public Date getDate() {
+        return this.date;
+    }
+
+    /**
+     * Get time slot of slot.
+     *
+     * @return time slot
+     */
+    public Timeslot getTimeslot() {
+        return this.timeslot;
+    }
+
+    /**
+     * Get location of slot.
+     *
+     * @return location
+     */
+    public Location getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Checks if dates, time slots and locations are the same.
+     *
+     * @param obj the other object to compare
+     * @return true if obj is a RoomSlot of the same date, time slot and
+     * location, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RoomSlot)) {
+            return false;
+        }
+        RoomSlot otherSlot = (RoomSlot) obj;
+        return this.date.equals(otherSlot.date) &&
+               this.timeslot == otherSlot.timeslot &&
+               this.location == otherSlot.location;
+    }
+
+    /**
+     * Hash on the same fields equals uses: date, time slot and location.
+     *
+     * @return hash code of this slot's date, time slot and location
+     */
+    @Override
+    public int hashCode() {
+        int hashMultiplier = 31;
+        int hash = this.date.hashCode();
+        hash = hash * hashMultiplier + this.timeslot.hashCode();
+        return hash * hashMultiplier + this.location.hashCode();
+    }
+
+    /**
+     * Append the slot's String representation to the given buffer
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder output) {
+        output.append("[Date: ");
+        this.date.appendTo(output).append("] [Start: ");
+        this.timeslot.appendStartTime(output).append("] ");
+        return this.location.appendTo(output);
+    }
+
+    /**
+     * String representation of slot
+     *
+     * @return date, start time and location of the slot
+     */
+    @Override
+    public String toString() {
+        return this.appendTo(new StringBuilder()).toString();
+    }
+}
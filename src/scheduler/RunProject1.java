@@ -1,5 +1,10 @@
 package scheduler;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import javax.management.JMException;
+
 /**
  * Main entry point of project 1
  *
@@ -7,11 +12,107 @@ package scheduler;
  */
 public class RunProject1 {
     /**
-     * Begins running the command line UI
+     * Begins running the command line UI, runs a command file in batch
+     * mode if a path is given, or serves clients on a local port when
+     * started with --server. A journal directory given after the path or
+     * port keeps the calendar across runs. Outside test mode the commands
+     * are measured and the metrics published over JMX, unless the
+     * scheduler.metrics system property is false.
      *
-     * @param args unused, does not use command line arguments
+     * @param args optional path of a command file to run in batch mode, or
+     *             --server followed by the port to listen on, either
+     *             optionally followed by a journal directory
      */
     public static void main(String[] args) {
+        if (args.length > 1 && args[0].equals("--server")) {
+            serve(Integer.parseInt(args[1]),
+                  args.length > 2 ? args[2] : null);
+            return;
+        }
+        if (args.length > 1) {
+            try (EventJournal journal = EventJournal.open(
+                    Paths.get(args[1]), new EventCalendar())) {
+                EventOrganizer organizer = new EventOrganizer(
+                        journal, System.out, Clock.systemDefaultZone());
+                organizer.setMetrics(
+                        metricsOf(journal.getEventCalendar(), "batch"));
+                organizer.runBatch(Paths.get(args[0]));
+            }
+            catch (IOException e) {
+                System.out.println("Cannot use journal: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0) {
+            EventCalendar calendar = new EventCalendar();
+            EventOrganizer organizer = new EventOrganizer(
+                    calendar, System.out, Clock.systemDefaultZone());
+            organizer.setMetrics(metricsOf(calendar, "batch"));
+            organizer.runBatch(Paths.get(args[0]));
+            return;
+        }
         new EventOrganizer(true).run();
     }
+
+    /**
+     * Serve clients on a local port until the process is stopped
+     *
+     * @param port             port to listen on
+     * @param journalDirectory directory of the calendar's journal, null to
+     *                         keep the calendar in memory only
+     */
+    private static void serve(int port, String journalDirectory) {
+        EventJournal journal = null;
+        try {
+            if (journalDirectory != null) {
+                journal = EventJournal.open(Paths.get(journalDirectory),
+                                            new ConcurrentEventCalendar()
+                );
+            }
+            try (EventOrganizerServer server = journal == null
+                    ? new EventOrganizerServer(port)
+                    : new EventOrganizerServer(port, journal,
+                                               Clock.systemDefaultZone()
+            )) {
+                server.setMetrics(metricsOf(server.getEventCalendar(),
+                                            "server-" + server.getPort()
+                ));
+                System.out.println("Event Organizer serving on port " +
+                                   server.getPort() + "...");
+                server.serve();
+            }
+            finally {
+                if (journal != null) {
+                    journal.close();
+                }
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Cannot serve: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create metrics of the organizers working on a calendar and register
+     * them over JMX, enabled unless the scheduler.metrics system property
+     * is false
+     *
+     * @param calendar calendar the organizers work on
+     * @param name     name the metrics are registered under
+     * @return the metrics
+     */
+    private static OrganizerMetrics metricsOf(
+            AbstractEventCalendar calendar, String name
+    ) {
+        OrganizerMetrics metrics = new OrganizerMetrics(calendar);
+        metrics.setEnabled(
+                !"false".equals(System.getProperty("scheduler.metrics")));
+        try {
+            metrics.register(name);
+        }
+        catch (JMException e) {
+            System.out.println("Cannot publish metrics: " + e.getMessage());
+        }
+        return metrics;
+    }
 }
@@ -15,6 +15,8 @@ public enum Timeslot {
 
     private final String stringRepresentation;
     private final int HOUR, MINUTE, AM_PM;
+    //end time of every valid duration, built on first use
+    private volatile String[] endTimes;
 
 
     /**
@@ -44,21 +46,48 @@ public enum Timeslot {
         return this.stringRepresentation;
     }
 
+    private final static int MINUTES_IN_HOUR = 60;
+    private final static int HOURS_ON_CLOCK = 12;
+    private final static int MINUTES_IN_DAY = 24 * MINUTES_IN_HOUR;
+    private final static int TWO_DIGIT_PADDING_LIMIT = 10;
+
     /**
-     * Helper function that will return the time in h:m format with AM or PM.
+     * Helper function that will append the time in h:m format with AM or PM.
      * Hour will not have leading zeroes and the minute will if below 10
      *
-     * @param hour   hour to display
-     * @param minute minute to display
-     * @param amPm   integer corresponding to Calendar.AM and calendar.PM,
-     *               indicates if morning or not
-     * @return string representation of the time
+     * @param output      buffer to append to
+     * @param minuteOfDay minutes since midnight of the time to display
+     * @return the same buffer, for chaining
+     */
+    private static StringBuilder appendTime(
+            StringBuilder output, int minuteOfDay
+    ) {
+        int hourOfDay = minuteOfDay / MINUTES_IN_HOUR;
+        int minute = minuteOfDay % MINUTES_IN_HOUR;
+        int hour = hourOfDay % HOURS_ON_CLOCK;
+        if (hour == 0) {
+            hour = HOURS_ON_CLOCK;
+        }
+
+        output.append(hour).append(':');
+        if (minute < TWO_DIGIT_PADDING_LIMIT) {
+            output.append('0');
+        }
+        return output.append(minute)
+                     .append(hourOfDay < HOURS_ON_CLOCK ? "am" : "pm");
+    }
+
+    /**
+     * Minutes since midnight at which this Timeslot starts
+     *
+     * @return start time as minute of the day
      */
-    private String formatTime(int hour, int minute, int amPm) {
-        String StringFormatWith2DigitPadding = "%02d";
-        return Integer.toString(hour) + ":" +
-               String.format(StringFormatWith2DigitPadding, minute) +
-               (amPm == Calendar.AM ? "am" : "pm");
+    private int startMinuteOfDay() {
+        int hourOfDay = this.HOUR % HOURS_ON_CLOCK;
+        if (this.AM_PM == Calendar.PM) {
+            hourOfDay += HOURS_ON_CLOCK;
+        }
+        return hourOfDay * MINUTES_IN_HOUR + this.MINUTE;
     }
 
     /**
@@ -69,7 +98,18 @@ public enum Timeslot {
      * @return string representation of Timeslot start time
      */
     public String startTime() {
-        return this.formatTime(this.HOUR, this.MINUTE, this.AM_PM);
+        return this.appendStartTime(new StringBuilder()).toString();
+    }
+
+    /**
+     * Append the starting time of this Timeslot in the format of
+     * startTime() to the given buffer
+     *
+     * @param output buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendStartTime(StringBuilder output) {
+        return Timeslot.appendTime(output, this.startMinuteOfDay());
     }
 
     /**
@@ -79,25 +119,63 @@ public enum Timeslot {
      * @return end time as string
      */
     public String timeAfterDuration(int duration) {
-        Calendar calendarForTime = Calendar.getInstance();
-        calendarForTime.set(Calendar.HOUR, this.HOUR);
-        calendarForTime.set(Calendar.MINUTE, this.MINUTE);
-        calendarForTime.set(Calendar.AM_PM, this.AM_PM);
-
-        calendarForTime.add(Calendar.MINUTE, duration);
-        int hour = calendarForTime.get(Calendar.HOUR);
+        if (Timeslot.isValidDuration(duration)) {
+            return this.endTimes()[duration - MIN_MINS];
+        }
+        return Timeslot.appendTime(new StringBuilder(),
+                                   this.endMinuteOfDay(duration)
+        ).toString();
+    }
 
-        int hour12AccordingToCalendar = 0;
-        if (hour == hour12AccordingToCalendar) {
-            hour = 12;
+    /**
+     * Get the table of end times for every valid duration, building it the
+     * first time it is needed. Index 0 holds the end time for MIN_MINS.
+     *
+     * @return end time strings indexed by duration - MIN_MINS
+     */
+    private String[] endTimes() {
+        String[] table = this.endTimes;
+        if (table == null) {
+            table = new String[MAX_MINS - MIN_MINS + 1];
+            StringBuilder endTime = new StringBuilder();
+            for (int duration = MIN_MINS; duration <= MAX_MINS; duration++) {
+                endTime.setLength(0);
+                Timeslot.appendTime(endTime, this.endMinuteOfDay(duration));
+                table[duration - MIN_MINS] = endTime.toString().intern();
+            }
+            this.endTimes = table;
         }
-        int minute = calendarForTime.get(Calendar.MINUTE);
+        return table;
+    }
 
-        return this.formatTime(hour,
-                               minute,
-                               calendarForTime.get(Calendar.AM_PM)
+    /**
+     * Minutes since midnight at which an event of the given duration
+     * starting in this Timeslot ends
+     *
+     * @param duration the number of minutes elapsed since start time
+     * @return end time as minute of the day
+     */
+    private int endMinuteOfDay(int duration) {
+        return Math.floorMod(this.startMinuteOfDay() + duration,
+                             MINUTES_IN_DAY
         );
+    }
 
+    /**
+     * Append the time after a duration in the format of timeAfterDuration
+     * to the given buffer
+     *
+     * @param output   buffer to append to
+     * @param duration the number of minutes elapsed since start time
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTimeAfterDuration(
+            StringBuilder output, int duration
+    ) {
+        if (Timeslot.isValidDuration(duration)) {
+            return output.append(this.endTimes()[duration - MIN_MINS]);
+        }
+        return Timeslot.appendTime(output, this.endMinuteOfDay(duration));
     }
 
     private final static int MIN_MINS = 30;
@@ -114,13 +192,17 @@ public enum Timeslot {
     }
 
 
+    //finds a time slot by name ignoring case
+    static final EnumLookup<Timeslot> LOOKUP = new EnumLookup<>(values());
+
+    /**
+     * Checks if the user's input is the name of a time slot, ignoring case
+     *
+     * @param userInputTimeSlot the time slot string to validate
+     * @return true if it names a time slot, false otherwise
+     */
     public static boolean isValidTimeSlot(String userInputTimeSlot){
-        for (Timeslot timeslot : values()) {
-            if (timeslot.name().equalsIgnoreCase(userInputTimeSlot)) {
-                return true;
-            }
-        }
-        return false;
+        return LOOKUP.find(userInputTimeSlot) != null;
     }
 
 
@@ -130,26 +212,33 @@ public enum Timeslot {
      * @param args unused, does not take command line arguments
      */
     public static void main(String[] args) {
-        assert (Timeslot.MORNING.timeAfterDuration(5).equals("10:35AM"));
-        assert (Timeslot.MORNING.timeAfterDuration(30).equals("11:00AM"));
-        assert (Timeslot.MORNING.timeAfterDuration(60).equals("11:30AM"));
-        assert (Timeslot.MORNING.timeAfterDuration(89).equals("11:59AM"));
-        assert (Timeslot.MORNING.timeAfterDuration(90).equals("12:00PM"));
-        assert (Timeslot.MORNING.timeAfterDuration(120).equals("12:30PM"));
-
-        assert (Timeslot.AFTERNOON.timeAfterDuration(5).equals("2:05PM"));
-        assert (Timeslot.AFTERNOON.timeAfterDuration(30).equals("2:30PM"));
-        assert (Timeslot.AFTERNOON.timeAfterDuration(60).equals("3:00PM"));
-        assert (Timeslot.AFTERNOON.timeAfterDuration(89).equals("3:29PM"));
-        assert (Timeslot.AFTERNOON.timeAfterDuration(90).equals("3:30PM"));
-        assert (Timeslot.AFTERNOON.timeAfterDuration(120).equals("4:00PM"));
-
-        assert (Timeslot.EVENING.timeAfterDuration(5).equals("6:35PM"));
-        assert (Timeslot.EVENING.timeAfterDuration(30).equals("7:00PM"));
-        assert (Timeslot.EVENING.timeAfterDuration(60).equals("7:30PM"));
-        assert (Timeslot.EVENING.timeAfterDuration(89).equals("7:59PM"));
-        assert (Timeslot.EVENING.timeAfterDuration(90).equals("8:00PM"));
-        assert (Timeslot.EVENING.timeAfterDuration(120).equals("8:30PM"));
+        assert (Timeslot.MORNING.timeAfterDuration(5).equals("10:35am"));
+        assert (Timeslot.MORNING.timeAfterDuration(30).equals("11:00am"));
+        assert (Timeslot.MORNING.timeAfterDuration(60).equals("11:30am"));
+        assert (Timeslot.MORNING.timeAfterDuration(89).equals("11:59am"));
+        assert (Timeslot.MORNING.timeAfterDuration(90).equals("12:00pm"));
+        assert (Timeslot.MORNING.timeAfterDuration(120).equals("12:30pm"));
+
+        assert (Timeslot.AFTERNOON.timeAfterDuration(5).equals("2:05pm"));
+        assert (Timeslot.AFTERNOON.timeAfterDuration(30).equals("2:30pm"));
+        assert (Timeslot.AFTERNOON.timeAfterDuration(60).equals("3:00pm"));
+        assert (Timeslot.AFTERNOON.timeAfterDuration(89).equals("3:29pm"));
+        assert (Timeslot.AFTERNOON.timeAfterDuration(90).equals("3:30pm"));
+        assert (Timeslot.AFTERNOON.timeAfterDuration(120).equals("4:00pm"));
+
+        assert (Timeslot.EVENING.timeAfterDuration(5).equals("6:35pm"));
+        assert (Timeslot.EVENING.timeAfterDuration(30).equals("7:00pm"));
+        assert (Timeslot.EVENING.timeAfterDuration(60).equals("7:30pm"));
+        assert (Timeslot.EVENING.timeAfterDuration(89).equals("7:59pm"));
+        assert (Timeslot.EVENING.timeAfterDuration(90).equals("8:00pm"));
+        assert (Timeslot.EVENING.timeAfterDuration(120).equals("8:30pm"));
+
+        // valid durations come from the precomputed table
+        assert (Timeslot.MORNING.timeAfterDuration(60) ==
+                Timeslot.MORNING.timeAfterDuration(60));
+        assert (Timeslot.EVENING.appendTimeAfterDuration(new StringBuilder(),
+                                                          45
+        ).toString().equals("7:15pm"));
 
 
     }
@@ -0,0 +1,453 @@
+package scheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Generates streams of organizer commands for load testing, like
+ * sample_inputs.txt but as long as needed. The stream is a mix of A, R, P,
+ * PE, PC and PD commands over every Location, Timeslot and Department.
+ * A share of the adds conflict with a booked event and a share of the
+ * removes miss, and a share of all commands is invalid in one of the ways
+ * a user could get it wrong. The same seed and clock always give the same
+ * stream.
+ */
+public class WorkloadGenerator {
+    /**
+     * Today for generated streams and their replays, so a stream gives the
+     * same output no matter when it is replayed
+     */
+    static final Clock CLOCK = Clock.fixed(
+            LocalDate.of(2024, 1, 1)
+                     .atStartOfDay(ZoneId.systemDefault())
+                     .toInstant(),
+            ZoneId.systemDefault()
+    );
+
+    private static final String[] COMMANDS = {"A", "R", "P", "PE", "PC", "PD"};
+    private static final int ADD = 0;
+    private static final int REMOVE = 1;
+    //weights of COMMANDS, mostly bookings since every print lists the
+    //whole calendar, with nearly as many removes as adds so the calendar
+    //does not just fill the booking window up
+    private static final int[] DEFAULT_MIX = {48, 40, 3, 3, 3, 3};
+    private static final double DEFAULT_CONFLICT_RATE = 0.1;
+    private static final double DEFAULT_INVALID_RATE = 0.05;
+    private static final int NUM_INVALID_KINDS = 10;
+    //tries to find a free slot before booking over a taken one
+    private static final int MAX_FREE_SLOT_TRIES = 16;
+
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    private static final Location[] LOCATIONS = Location.values();
+    private static final Department[] DEPARTMENTS = Department.values();
+
+    private final Random random;
+    private final Date firstDay; //first day the organizer accepts
+    private final int numDays; //number of days the organizer accepts
+    private int[] mix = DEFAULT_MIX;
+    private int totalWeight;
+    private double conflictRate = DEFAULT_CONFLICT_RATE;
+    private double invalidRate = DEFAULT_INVALID_RATE;
+    //"DATE TIMESLOT LOCATION" of every event the stream has booked so far
+    private final ArrayList<String> booked = new ArrayList<>();
+    //index in booked of every booked slot
+    private final HashMap<String, Integer> indexOfBooked = new HashMap<>();
+
+    /**
+     * Create a generator of commands for an organizer with the given clock
+     *
+     * @param seed  seed of the random choices
+     * @param clock clock the organizer replaying the stream will use
+     */
+    public WorkloadGenerator(long seed, Clock clock) {
+        this.random = new Random(seed);
+        BookingWindow window = new BookingWindow(clock);
+        this.firstDay = Date.ofEpochDay(
+                (int) LocalDate.now(clock).toEpochDay() + 1);
+        int days = 0;
+        while (!this.firstDay.plusDays(days)
+                             .isMoreThanSixMonthsAway(window)) {
+            days++;
+        }
+        this.numDays = days;
+        this.totalWeight = WorkloadGenerator.sum(this.mix);
+    }
+
+    /**
+     * Add up weights
+     *
+     * @param weights the weights
+     * @return their sum
+     */
+    private static int sum(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /**
+     * Set how often each command comes up
+     *
+     * @param weights relative weights of the A, R, P, PE, PC and PD
+     *                commands
+     * @return this generator, for chaining
+     * @throws IllegalArgumentException if there are not six weights, one is
+     *                                  negative or all are zero
+     */
+    public WorkloadGenerator setMix(int... weights) {
+        if (weights.length != COMMANDS.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + COMMANDS.length + " weights, got " +
+                    weights.length);
+        }
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException(
+                        "Invalid weight: " + weight);
+            }
+        }
+        int total = WorkloadGenerator.sum(weights);
+        if (total == 0) {
+            throw new IllegalArgumentException("Every weight is zero");
+        }
+        this.mix = weights.clone();
+        this.totalWeight = total;
+        return this;
+    }
+
+    /**
+     * Set the share of valid adds that book a taken slot and of valid
+     * removes that name a free one
+     *
+     * @param conflictRate share between 0 and 1
+     * @return this generator, for chaining
+     * @throws IllegalArgumentException if the share is not between 0 and 1
+     */
+    public WorkloadGenerator setConflictRate(double conflictRate) {
+        this.conflictRate = WorkloadGenerator.checkRate(conflictRate);
+        return this;
+    }
+
+    /**
+     * Set the share of commands with invalid input
+     *
+     * @param invalidRate share between 0 and 1
+     * @return this generator, for chaining
+     * @throws IllegalArgumentException if the share is not between 0 and 1
+     */
+    public WorkloadGenerator setInvalidRate(double invalidRate) {
+        this.invalidRate = WorkloadGenerator.checkRate(invalidRate);
+        return this;
+    }
+
+    /**
+     * Check a share is between 0 and 1
+     *
+     * @param rate the share
+     * @return the share
+     * @throws IllegalArgumentException if the share is not between 0 and 1
+     */
+    private static double checkRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Invalid rate: " + rate);
+        }
+        return rate;
+    }
+
+    /**
+     * Write a token in the mix of cases users type it in
+     *
+     * @param token the token in upper case
+     * @return the token in upper, lower or capitalized case
+     */
+    private String anyCase(String token) {
+        switch (this.random.nextInt(3)) {
+            case 0:
+                return token;
+            case 1:
+                return token.toLowerCase();
+            default:
+                return token.charAt(0) + token.substring(1).toLowerCase();
+        }
+    }
+
+    /**
+     * Pick a random slot in the booking window
+     *
+     * @return "DATE TIMESLOT LOCATION" of the slot
+     */
+    private String randomSlot() {
+        return this.firstDay.plusDays(this.random.nextInt(this.numDays)) +
+               " " + this.anyCase(
+                TIMESLOTS[this.random.nextInt(TIMESLOTS.length)].name()) +
+               " " + this.anyCase(
+                LOCATIONS[this.random.nextInt(LOCATIONS.length)].name());
+    }
+
+    /**
+     * Get the key of a slot, the same however its tokens are cased
+     *
+     * @param slot "DATE TIMESLOT LOCATION" of the slot
+     * @return the slot in upper case
+     */
+    private static String keyOf(String slot) {
+        return slot.toUpperCase();
+    }
+
+    /**
+     * Pick a random booked slot
+     *
+     * @return "DATE TIMESLOT LOCATION" of the slot, null if none is booked
+     */
+    private String bookedSlot() {
+        if (this.booked.isEmpty()) {
+            return null;
+        }
+        return this.booked.get(this.random.nextInt(this.booked.size()));
+    }
+
+    /**
+     * Pick a random slot that is not booked, or a booked one if no free
+     * one turns up after a few tries
+     *
+     * @return "DATE TIMESLOT LOCATION" of the slot
+     */
+    private String freeSlot() {
+        String slot = this.randomSlot();
+        for (int i = 1; i < MAX_FREE_SLOT_TRIES &&
+                        this.indexOfBooked.containsKey(keyOf(slot)); i++) {
+            slot = this.randomSlot();
+        }
+        return slot;
+    }
+
+    /**
+     * Record that a slot was booked
+     *
+     * @param slot "DATE TIMESLOT LOCATION" of the slot
+     */
+    private void book(String slot) {
+        String key = WorkloadGenerator.keyOf(slot);
+        if (!this.indexOfBooked.containsKey(key)) {
+            this.indexOfBooked.put(key, this.booked.size());
+            this.booked.add(key);
+        }
+    }
+
+    /**
+     * Record that a slot was freed
+     *
+     * @param slot "DATE TIMESLOT LOCATION" of the slot
+     */
+    private void cancel(String slot) {
+        Integer index = this.indexOfBooked.remove(keyOf(slot));
+        if (index == null) {
+            return;
+        }
+        String last = this.booked.remove(this.booked.size() - 1);
+        if (index < this.booked.size()) {
+            this.booked.set(index, last);
+            this.indexOfBooked.put(last, index);
+        }
+    }
+
+    /**
+     * Create a valid add command for a slot
+     *
+     * @param slot "DATE TIMESLOT LOCATION" of the slot
+     * @return the command
+     */
+    private String addCommand(String slot) {
+        Department department =
+                DEPARTMENTS[this.random.nextInt(DEPARTMENTS.length)];
+        return "A " + slot + " " + this.anyCase(department.name()) + " " +
+               department.name().toLowerCase() + "@rutgers.edu " +
+               (30 + this.random.nextInt(91));
+    }
+
+    /**
+     * Create a command with invalid input
+     *
+     * @return the command
+     */
+    private String invalidCommand() {
+        String slot = this.randomSlot();
+        String[] tokens = slot.split(" ");
+        String contact = "cs cs@rutgers.edu 60";
+        switch (this.random.nextInt(NUM_INVALID_KINDS)) {
+            case 0:
+                return "A 2/30/2024 " + tokens[1] + " " + tokens[2] + " " +
+                       contact;
+            case 1:
+                return "A 12/1/2023 " + tokens[1] + " " + tokens[2] + " " +
+                       contact;
+            case 2:
+                return "A 12/1/2024 " + tokens[1] + " " + tokens[2] + " " +
+                       contact;
+            case 3:
+                return "A " + tokens[0] + " noon " + tokens[2] + " " +
+                       contact;
+            case 4:
+                return "A " + tokens[0] + " " + tokens[1] + " HLL999 " +
+                       contact;
+            case 5:
+                return "A " + slot + " ART art@rutgers.edu 60";
+            case 6:
+                return "A " + slot + " cs cs@gmail.com 60";
+            case 7:
+                return "A " + slot + " cs cs@rutgers.edu " +
+                       (this.random.nextBoolean() ? 15 : 150);
+            case 8:
+                return "R " + tokens[0] + " " + tokens[1];
+            default:
+                String command = COMMANDS[this.random.nextInt(
+                        COMMANDS.length)];
+                return this.random.nextBoolean()
+                       ? command.toLowerCase()
+                       : "X" + command;
+        }
+    }
+
+    /**
+     * Generate the next command of the stream
+     *
+     * @return the command line
+     */
+    public String next() {
+        if (this.random.nextDouble() < this.invalidRate) {
+            return this.invalidCommand();
+        }
+
+        int pick = this.random.nextInt(this.totalWeight);
+        int command = 0;
+        while (pick >= this.mix[command]) {
+            pick -= this.mix[command++];
+        }
+        boolean conflict = this.random.nextDouble() < this.conflictRate;
+
+        if (command == ADD) {
+            String slot = conflict ? this.bookedSlot() : null;
+            if (slot == null) {
+                slot = this.freeSlot();
+            }
+            this.book(slot);
+            return this.addCommand(slot);
+        }
+        if (command == REMOVE) {
+            String slot = conflict ? null : this.bookedSlot();
+            if (slot == null) {
+                slot = this.freeSlot();
+            }
+            this.cancel(slot);
+            return "R " + slot;
+        }
+        return COMMANDS[command];
+    }
+
+    /**
+     * Write a stream of commands, one per line, ending with Q
+     *
+     * @param output      where the commands are written
+     * @param numCommands number of commands before the Q
+     * @throws IOException if writing fails
+     */
+    public void write(Appendable output, int numCommands) throws IOException {
+        for (int i = 0; i < numCommands; i++) {
+            output.append(this.next()).append('\n');
+        }
+        output.append("Q\n");
+    }
+
+    /**
+     * Print a stream of commands for the organizer to replay, or test the
+     * generator if there are no arguments
+     *
+     * @param args number of commands and seed, optionally followed by the
+     *             conflict rate, the invalid rate and six weights for the
+     *             A, R, P, PE, PC and PD commands
+     * @throws IOException if writing to standard output fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            WorkloadGenerator.test();
+            return;
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator(
+                Long.parseLong(args[1]), WorkloadGenerator.CLOCK);
+        if (args.length > 2) {
+            generator.setConflictRate(Double.parseDouble(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setInvalidRate(Double.parseDouble(args[3]));
+        }
+        if (args.length > 4) {
+            int[] weights = new int[args.length - 4];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = Integer.parseInt(args[i + 4]);
+            }
+            generator.setMix(weights);
+        }
+        BufferedWriter output =
+                new BufferedWriter(new OutputStreamWriter(System.out));
+        generator.write(output, Integer.parseInt(args[0]));
+        output.flush();
+    }
+
+    /**
+     * Unit tests for the generator
+     */
+    private static void test() {
+        int numCommands = 5000;
+        String[] first = new String[numCommands];
+        WorkloadGenerator generator = new WorkloadGenerator(42, CLOCK);
+        for (int i = 0; i < numCommands; i++) {
+            first[i] = generator.next();
+        }
+
+        // the same seed gives the same stream
+        WorkloadGenerator again = new WorkloadGenerator(42, CLOCK);
+        for (int i = 0; i < numCommands; i++) {
+            assert again.next().equals(first[i]);
+        }
+
+        // the organizer agrees with the generator on what is booked
+        StringBuilder output = new StringBuilder();
+        EventCalendar calendar = new EventCalendar();
+        EventOrganizer organizer =
+                new EventOrganizer(calendar, output, CLOCK);
+        int[] count = new int[COMMANDS.length];
+        for (String command : first) {
+            organizer.processCommand(command);
+            for (int c = 0; c < COMMANDS.length; c++) {
+                if (command.startsWith(COMMANDS[c] + " ") ||
+                    command.equals(COMMANDS[c])) {
+                    count[c]++;
+                }
+            }
+        }
+        assert count[ADD] > count[REMOVE] && count[REMOVE] > count[2];
+        assert output.indexOf("Event added to the calendar.") >= 0;
+        assert output.indexOf("The event is already on the calendar.") >= 0;
+        assert output.indexOf("Cannot remove; event is not in the") >= 0;
+        assert output.indexOf("Invalid location!") >= 0;
+        assert output.indexOf(" is an invalid command!") >= 0;
+        assert calendar.getNumEvents() == generator.booked.size();
+        for (String slot : generator.booked) {
+            String[] tokens = slot.split(" ");
+            assert !calendar.isFree(Date.parseDate(tokens[0]),
+                                    Timeslot.LOOKUP.find(tokens[1]),
+                                    Location.LOOKUP.find(tokens[2])
+            );
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package scheduler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a stream of commands, such as one from WorkloadGenerator,
+ * through EventOrganizer.processCommand and measures it: throughput,
+ * latency percentiles of single commands and bytes allocated per command.
+ * The output of the commands is written out so it can be diffed against
+ * the output of a reference run.
+ */
+public class WorkloadReplay {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    //mismatched lines printed by diff before it only counts them
+    private static final int MAX_REPORTED_DIFFS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean();
+
+    private final long[] latencies; //nanos of each command, sorted
+    private final long elapsedNanos; //nanos of the whole replay
+    private final long allocatedBytes; //bytes allocated by the replay
+
+    /**
+     * Keep the measurements of a replay
+     *
+     * @param latencies      nanos each command took, in any order
+     * @param elapsedNanos   nanos the whole replay took
+     * @param allocatedBytes bytes allocated by the replay
+     */
+    private WorkloadReplay(
+            long[] latencies, long elapsedNanos, long allocatedBytes
+    ) {
+        Arrays.sort(latencies);
+        this.latencies = latencies;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Replay commands through a new organizer on an empty calendar. Empty
+     * lines are skipped and the replay stops at Q, like a session would.
+     *
+     * @param commands the command lines
+     * @param clock    clock the organizer validates dates against
+     * @param output   sink the output of every command is written to
+     * @return the measurements of the replay
+     */
+    public static WorkloadReplay replay(
+            List<String> commands, Clock clock, Appendable output
+    ) {
+        EventOrganizer organizer = new EventOrganizer(output, clock);
+        long[] latencies = new long[commands.size()];
+        int numCommands = 0;
+
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (String command : commands) {
+            String trimCommand = command.trim();
+            if (trimCommand.equals("Q")) {
+                break;
+            }
+            else if (trimCommand.isEmpty()) {
+                continue;
+            }
+            long commandStart = System.nanoTime();
+            organizer.processCommand(command);
+            latencies[numCommands++] = System.nanoTime() - commandStart;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() -
+                              allocatedBefore;
+
+        return new WorkloadReplay(Arrays.copyOf(latencies, numCommands),
+                                  elapsedNanos, allocatedBytes
+        );
+    }
+
+    /**
+     * Get number of commands replayed
+     *
+     * @return number of commands, not counting empty lines
+     */
+    public int getNumCommands() {
+        return this.latencies.length;
+    }
+
+    /**
+     * Get the latency below which a share of the commands finished, by the
+     * nearest rank
+     *
+     * @param percentile share of the commands, from 0 to 100
+     * @return latency in nanos, 0 if no command was replayed
+     */
+    public long latencyPercentile(double percentile) {
+        if (this.latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * this.latencies.length);
+        return this.latencies[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Append a summary of the measurements to the given buffer
+     *
+     * @param report buffer to append to
+     * @return the same buffer, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder report) {
+        int numCommands = this.getNumCommands();
+        report.append("commands: ").append(numCommands).append('\n');
+        report.append("throughput: ")
+              .append(String.format("%.1f", numCommands * 1e9 /
+                                            Math.max(this.elapsedNanos, 1)))
+              .append(" commands/s\n");
+        report.append("latency (ns):");
+        for (double percentile : PERCENTILES) {
+            report.append(" p").append(percentile % 1 == 0
+                                       ? Integer.toString((int) percentile)
+                                       : Double.toString(percentile))
+                  .append('=').append(this.latencyPercentile(percentile));
+        }
+        report.append(" max=").append(this.latencyPercentile(100))
+              .append('\n');
+        double bytesPerCommand =
+                (double) this.allocatedBytes / Math.max(numCommands, 1);
+        return report.append("allocated: ")
+                     .append(String.format("%.1f", bytesPerCommand))
+                     .append(" B/command\n");
+    }
+
+    /**
+     * String summary of the measurements
+     *
+     * @return throughput, latency percentiles and allocation per command
+     */
+    @Override
+    public String toString() {
+        return this.appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Compare an output file with a reference output line by line, printing
+     * the first few lines that differ. Neither file is read into memory as
+     * a whole, since replay outputs can be large.
+     *
+     * @param actual   file holding the output to check
+     * @param expected file holding the reference output
+     * @param report   stream the differing lines are printed to
+     * @return number of lines that differ, counting lines only one file has
+     * @throws IOException if either file cannot be read
+     */
+    public static int diff(Path actual, Path expected, PrintStream report)
+            throws IOException {
+        int numDiffs = 0;
+        try (BufferedReader actualLines = Files.newBufferedReader(actual);
+             BufferedReader expectedLines = Files.newBufferedReader(expected)
+        ) {
+            String programOutput = actualLines.readLine();
+            String expectedOutput = expectedLines.readLine();
+            for (int line = 1; programOutput != null || expectedOutput != null;
+                 line++) {
+                if (programOutput == null || expectedOutput == null ||
+                    !programOutput.equals(expectedOutput)) {
+                    if (++numDiffs <= MAX_REPORTED_DIFFS) {
+                        report.println(String.format(
+                                "program output: '%s'\n expected output: " +
+                                "'%s', line %d \n",
+                                programOutput == null ? "<none>"
+                                                      : programOutput,
+                                expectedOutput == null ? "<none>"
+                                                       : expectedOutput,
+                                line
+                        ));
+                    }
+                }
+                programOutput = actualLines.readLine();
+                expectedOutput = expectedLines.readLine();
+            }
+        }
+        if (numDiffs > MAX_REPORTED_DIFFS) {
+            report.println("... and " + (numDiffs - MAX_REPORTED_DIFFS) +
+                           " more differing lines");
+        }
+        return numDiffs;
+    }
+
+    /**
+     * Replay a command file once to warm up and once measured, write its
+     * output and print the measurements, or test the harness if there are
+     * no arguments
+     *
+     * @param args command file, file to write the output to and,
+     *             optionally, a reference output to diff it against
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            WorkloadReplay.test();
+            return;
+        }
+
+        List<String> commands = Files.readAllLines(Path.of(args[0]));
+        WorkloadReplay.replay(commands, WorkloadGenerator.CLOCK,
+                              Writer.nullWriter()
+        );
+        Path outputFile = Path.of(args[1]);
+        WorkloadReplay replay;
+        try (BufferedWriter output = Files.newBufferedWriter(outputFile)) {
+            replay = WorkloadReplay.replay(commands, WorkloadGenerator.CLOCK,
+                                           output
+            );
+        }
+        System.out.print(replay);
+
+        if (args.length > 2) {
+            int numDiffs = WorkloadReplay.diff(outputFile, Path.of(args[2]),
+                                               System.out
+            );
+            System.out.println(numDiffs == 0
+                               ? "Output matches " + args[2]
+                               : numDiffs + " lines differ from " + args[2]);
+        }
+    }
+
+    /**
+     * Unit tests for replaying and diffing
+     *
+     * @throws IOException if the temporary files cannot be used
+     */
+    private static void test() throws IOException {
+        StringBuilder stream = new StringBuilder();
+        new WorkloadGenerator(7, WorkloadGenerator.CLOCK).write(stream, 2000);
+        List<String> commands =
+                Arrays.asList(("\n" + stream).split("\n"));
+
+        StringBuilder firstOutput = new StringBuilder();
+        StringBuilder secondOutput = new StringBuilder();
+        WorkloadReplay first = WorkloadReplay.replay(
+                commands, WorkloadGenerator.CLOCK, firstOutput);
+        WorkloadReplay.replay(commands, WorkloadGenerator.CLOCK,
+                              secondOutput
+        );
+        // the empty line and Q are not commands
+        assert first.getNumCommands() == 2000;
+        assert firstOutput.toString().equals(secondOutput.toString());
+        assert first.latencyPercentile(50) <= first.latencyPercentile(99);
+        assert first.latencyPercentile(99) <= first.latencyPercentile(100);
+        assert first.latencyPercentile(100) > 0;
+        assert first.toString().startsWith("commands: 2000\n");
+
+        Path directory = Files.createTempDirectory("workload-replay");
+        Path actual = directory.resolve("actual.txt");
+        Path expected = directory.resolve("expected.txt");
+        Files.writeString(actual, firstOutput);
+        Files.writeString(expected, secondOutput);
+        PrintStream discard = new PrintStream(PrintStream.nullOutputStream());
+        assert WorkloadReplay.diff(actual, expected, discard) == 0;
+
+        // a changed line and a missing line both count
+        Files.writeString(expected, secondOutput.toString()
+                                                .replaceFirst("added",
+                                                              "dropped") +
+                                    "extra line\n");
+        assert WorkloadReplay.diff(actual, expected, discard) == 2;
+
+        Files.delete(actual);
+        Files.delete(expected);
+        Files.delete(directory);
+    }
+}